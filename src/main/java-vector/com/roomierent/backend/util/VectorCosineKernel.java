@@ -0,0 +1,76 @@
+package com.roomierent.backend.util;
+
+import com.roomierent.backend.util.datastructures.FeatureMatrix;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Kernel de coseno con la Vector API: procesa tantas filas por instrucción
+ * como permita el ancho SIMD de la máquina (8 floats con AVX2)
+ */
+public final class VectorCosineKernel implements CosineKernel {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    @Override
+    public void similarities(float[] query, FeatureMatrix matrix, int from, int to, float[] out) {
+        float[] data = matrix.getData();
+        int stride = matrix.getStride();
+        int dimensions = matrix.getDimensions();
+
+        int j = from;
+        int upper = from + SPECIES.loopBound(to - from);
+
+        for (; j < upper; j += SPECIES.length()) {
+            FloatVector sum = FloatVector.zero(SPECIES);
+            for (int d = 0; d < dimensions; d++) {
+                FloatVector column = FloatVector.fromArray(SPECIES, data, d * stride + j);
+                sum = column.fma(FloatVector.broadcast(SPECIES, query[d]), sum);
+            }
+            sum.intoArray(out, j);
+        }
+
+        // Cola que no llena un registro completo
+        for (; j < to; j++) {
+            float sum = 0f;
+            for (int d = 0; d < dimensions; d++) {
+                sum += query[d] * data[d * stride + j];
+            }
+            out[j] = sum;
+        }
+    }
+
+    @Override
+    public void similarities(float[] query, FeatureMatrix matrix, int[] rows, int count, float[] out) {
+        float[] data = matrix.getData();
+        int stride = matrix.getStride();
+        int dimensions = matrix.getDimensions();
+
+        int k = 0;
+        int upper = SPECIES.loopBound(count);
+
+        // Gather: cada carril lee la dimensión d de una fila distinta
+        for (; k < upper; k += SPECIES.length()) {
+            FloatVector sum = FloatVector.zero(SPECIES);
+            for (int d = 0; d < dimensions; d++) {
+                FloatVector column = FloatVector.fromArray(SPECIES, data, d * stride, rows, k);
+                sum = column.fma(FloatVector.broadcast(SPECIES, query[d]), sum);
+            }
+            sum.intoArray(out, k);
+        }
+
+        for (; k < count; k++) {
+            int row = rows[k];
+            float sum = 0f;
+            for (int d = 0; d < dimensions; d++) {
+                sum += query[d] * data[d * stride + row];
+            }
+            out[k] = sum;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "vector-api (" + SPECIES.length() + " floats)";
+    }
+}
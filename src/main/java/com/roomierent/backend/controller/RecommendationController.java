@@ -6,6 +6,7 @@ import com.roomierent.backend.dto.UserPreferencesResponse;
 import com.roomierent.backend.model.entity.Property;
 import com.roomierent.backend.service.PropertyService;
 import com.roomierent.backend.service.UserPreferencesService;
+import com.roomierent.backend.service.recommendation.GraphBuildJob;
 import com.roomierent.backend.service.recommendation.RecommendationManager;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
@@ -39,6 +40,10 @@ import java.util.stream.Collectors;
 )
 public class RecommendationController {
 
+    // Rango permitido para ?limit= (el top-k reserva memoria proporcional a k)
+    private static final int MIN_LIMIT = 1;
+    private static final int MAX_LIMIT = 100;
+
     private final RecommendationManager recommendationManager;
     private final UserPreferencesService preferencesService;
     private final PropertyService propertyService;
@@ -61,6 +66,10 @@ public class RecommendationController {
     public ResponseEntity<List<PropertyResponse>> getRecommendations(
             @RequestParam(defaultValue = "10") int limit
     ) {
+        if (!isValidLimit(limit)) {
+            return ResponseEntity.badRequest().build();
+        }
+
         try {
             String email = getAuthenticatedUserEmail();
             System.out.println("📥 Petición de recomendaciones para: " + email);
@@ -89,6 +98,10 @@ public class RecommendationController {
             @PathVariable Long propertyId,
             @RequestParam(defaultValue = "5") int limit
     ) {
+        if (!isValidLimit(limit)) {
+            return ResponseEntity.badRequest().build();
+        }
+
         try {
             System.out.println("📥 Petición de propiedades similares a ID: " + propertyId);
 
@@ -160,30 +173,70 @@ public class RecommendationController {
 
     /**
      * POST /api/recommendations/build-graph
-     * Construye el grafo de similitud (admin/mantenimiento)
+     * Lanza la construcción del grafo de similitud en segundo plano (admin/mantenimiento)
+     * Si ya hay una en curso retorna ese mismo trabajo
      */
     @PostMapping("/build-graph")
-    public ResponseEntity<Map<String, String>> buildGraph() {
+    public ResponseEntity<Map<String, Object>> buildGraph() {
         try {
             System.out.println("📥 Petición para construir grafo de similitud");
 
-            recommendationManager.buildPropertyGraph();
+            GraphBuildJob job = recommendationManager.startGraphBuild();
 
-            Map<String, String> response = new HashMap<>();
-            response.put("message", "Grafo de similitud construido exitosamente");
+            Map<String, Object> response = job.toMap();
+            response.put("message", "Construcción del grafo en segundo plano");
 
-            return ResponseEntity.ok(response);
+            return ResponseEntity.accepted().body(response);
 
         } catch (Exception e) {
             System.err.println("❌ Error construyendo grafo: " + e.getMessage());
 
-            Map<String, String> response = new HashMap<>();
+            Map<String, Object> response = new HashMap<>();
             response.put("message", "Error construyendo grafo");
 
             return ResponseEntity.internalServerError().body(response);
         }
     }
 
+    /**
+     * GET /api/recommendations/build-graph
+     * Estado del último trabajo de construcción del grafo
+     */
+    @GetMapping("/build-graph")
+    public ResponseEntity<Map<String, Object>> getLatestGraphBuild() {
+        GraphBuildJob job = recommendationManager.getLatestGraphBuildJob();
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(job.toMap());
+    }
+
+    /**
+     * GET /api/recommendations/build-graph/{jobId}
+     * Progreso de un trabajo de construcción (pares comparados, aristas, tiempo)
+     */
+    @GetMapping("/build-graph/{jobId}")
+    public ResponseEntity<Map<String, Object>> getGraphBuild(@PathVariable Long jobId) {
+        GraphBuildJob job = recommendationManager.getGraphBuildJob(jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(job.toMap());
+    }
+
+    /**
+     * DELETE /api/recommendations/build-graph/{jobId}
+     * Cancela un trabajo de construcción en curso
+     */
+    @DeleteMapping("/build-graph/{jobId}")
+    public ResponseEntity<Map<String, Object>> cancelGraphBuild(@PathVariable Long jobId) {
+        GraphBuildJob job = recommendationManager.cancelGraphBuild(jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(job.toMap());
+    }
+
     /**
      * GET /api/recommendations/strategies
      * Lista las estrategias de recomendación disponibles
@@ -194,6 +247,15 @@ public class RecommendationController {
         return ResponseEntity.ok(strategies);
     }
 
+    /**
+     * GET /api/recommendations/cache-stats
+     * Estadísticas de la caché de recomendaciones (aciertos, fallos, tamaño)
+     */
+    @GetMapping("/cache-stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(recommendationManager.getCacheStats());
+    }
+
     /**
      * Convierte Property a PropertyResponse
      */
@@ -201,6 +263,13 @@ public class RecommendationController {
         return propertyService.convertToResponse(property);
     }
 
+    /**
+     * Valida el parámetro limit de las consultas de recomendaciones
+     */
+    private static boolean isValidLimit(int limit) {
+        return limit >= MIN_LIMIT && limit <= MAX_LIMIT;
+    }
+
     /**
      * Obtiene el email del usuario autenticado desde el SecurityContext
      */
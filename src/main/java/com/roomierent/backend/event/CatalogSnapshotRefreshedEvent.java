@@ -0,0 +1,16 @@
+package com.roomierent.backend.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Evento publicado cuando se carga una nueva versión del snapshot de catálogo
+ * Lo escuchan los componentes que precalculan resultados por versión de catálogo
+ */
+@Getter
+@AllArgsConstructor
+public class CatalogSnapshotRefreshedEvent {
+
+    private final long catalogVersion;
+    private final int size;
+}
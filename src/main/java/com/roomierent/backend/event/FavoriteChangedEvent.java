@@ -0,0 +1,23 @@
+package com.roomierent.backend.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Evento publicado cuando un usuario agrega o quita una propiedad de sus favoritos
+ * El filtrado colaborativo lo escucha después del commit para actualizar la matriz
+ */
+@Getter
+@AllArgsConstructor
+public class FavoriteChangedEvent {
+
+    public enum Type {
+        ADDED,
+        REMOVED
+    }
+
+    private final Long userId;
+    private final String userEmail;
+    private final Long propertyId;
+    private final Type type;
+}
@@ -0,0 +1,25 @@
+package com.roomierent.backend.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Evento publicado cuando una propiedad se crea o elimina
+ * Los componentes de recomendación lo escuchan después del commit
+ *
+ * No hay tipo para modificaciones: cualquier cambio de columnas de scoring se detecta
+ * al refrescar el snapshot de catálogo (huella por fila) y el grafo re-calcula esos
+ * nodos en RecommendationManager.syncGraphWithCatalog
+ */
+@Getter
+@AllArgsConstructor
+public class PropertyChangedEvent {
+
+    public enum Type {
+        CREATED,
+        DELETED
+    }
+
+    private final Long propertyId;
+    private final Type type;
+}
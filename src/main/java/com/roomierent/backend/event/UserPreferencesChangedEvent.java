@@ -0,0 +1,14 @@
+package com.roomierent.backend.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Evento publicado cuando un usuario guarda o actualiza sus preferencias
+ */
+@Getter
+@AllArgsConstructor
+public class UserPreferencesChangedEvent {
+
+    private final String userEmail;
+}
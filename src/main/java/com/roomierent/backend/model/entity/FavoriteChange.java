@@ -0,0 +1,44 @@
+package com.roomierent.backend.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Registro de cada favorito agregado o quitado, en la misma transacción que el cambio
+ * Las demás instancias lo leen por id para aplicar los cambios a su matriz de
+ * co-favoritos (un favorito borrado no deja rastro en la tabla favorites)
+ */
+@Entity
+@Table(name = "favorite_changes", indexes = {
+        @Index(name = "idx_favorite_changes_created_at", columnList = "created_at")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FavoriteChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "user_email", nullable = false)
+    private String userEmail;
+
+    @Column(name = "property_id", nullable = false)
+    private Long propertyId;
+
+    // true = agregado, false = quitado
+    @Column(nullable = false)
+    private Boolean added;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,39 @@
+package com.roomierent.backend.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lease de la construcción del grafo de similitud entre instancias del backend
+ * Solo el dueño de una fila vigente construye; al publicar incrementa generation
+ * y las demás instancias recargan el grafo publicado
+ */
+@Entity
+@Table(name = "graph_build_lease")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class GraphBuildLease {
+
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    // Instancia que tiene el lease (null = libre)
+    @Column(name = "owner_id", length = 128)
+    private String ownerId;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    // Se incrementa cada vez que se publica un grafo nuevo
+    @Column(nullable = false)
+    @Builder.Default
+    private Long generation = 0L;
+
+    @Column(name = "published_at")
+    private LocalDateTime publishedAt;
+}
@@ -14,7 +14,11 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "properties")
+@Table(name = "properties", indexes = {
+        @Index(name = "idx_properties_status_price", columnList = "status, price"),
+        @Index(name = "idx_properties_status_bedrooms_bathrooms", columnList = "status, bedrooms, bathrooms"),
+        @Index(name = "idx_properties_status_area", columnList = "status, area")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -0,0 +1,38 @@
+package com.roomierent.backend.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Vecino precalculado de una propiedad (top-K del grafo de similitud)
+ * Compartido por todas las instancias del backend
+ */
+@Entity
+@Table(name = "property_similarity", indexes = {
+        @Index(name = "idx_property_similarity_property_rank", columnList = "property_id, rank", unique = true)
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PropertySimilarity {
+
+    // Secuencia con asignación por bloques: permite insertar en lotes (IDENTITY no)
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "property_similarity_seq")
+    @SequenceGenerator(name = "property_similarity_seq", sequenceName = "property_similarity_seq", allocationSize = 100)
+    private Long id;
+
+    @Column(name = "property_id", nullable = false)
+    private Long propertyId;
+
+    @Column(name = "neighbor_id", nullable = false)
+    private Long neighborId;
+
+    // Posición del vecino (0 = el más similar)
+    @Column(name = "rank", nullable = false)
+    private Integer rank;
+
+    @Column(nullable = false)
+    private Double score;
+}
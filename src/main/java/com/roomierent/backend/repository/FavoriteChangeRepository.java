@@ -0,0 +1,33 @@
+package com.roomierent.backend.repository;
+
+import com.roomierent.backend.model.entity.FavoriteChange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface FavoriteChangeRepository extends JpaRepository<FavoriteChange, Long> {
+
+    /**
+     * Cambios con id mayor al indicado, en orden de id
+     */
+    @Query("SELECT c FROM FavoriteChange c WHERE c.id > :afterId ORDER BY c.id")
+    List<FavoriteChange> findAfter(@Param("afterId") Long afterId);
+
+    /**
+     * Mayor id de los cambios registrados antes de la fecha (null si no hay)
+     */
+    @Query("SELECT MAX(c.id) FROM FavoriteChange c WHERE c.createdAt < :before")
+    Long findMaxIdBefore(@Param("before") LocalDateTime before);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM FavoriteChange c WHERE c.createdAt < :before")
+    int deleteOlderThan(@Param("before") LocalDateTime before);
+}
@@ -35,4 +35,10 @@ public interface FavoriteRepository extends JpaRepository<Favorite, Long> {
 
     @Query("SELECT f.property.id FROM Favorite f WHERE f.user = :user")
     List<Long> findPropertyIdsByUser(@Param("user") User user);
+
+    /**
+     * Todos los pares (usuario, propiedad) para armar la matriz de co-favoritos
+     */
+    @Query("SELECT f.user.id, f.property.id FROM Favorite f ORDER BY f.user.id")
+    List<Object[]> findAllUserPropertyPairs();
 }
\ No newline at end of file
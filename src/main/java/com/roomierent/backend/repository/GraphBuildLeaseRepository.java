@@ -0,0 +1,87 @@
+package com.roomierent.backend.repository;
+
+import com.roomierent.backend.model.entity.GraphBuildLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Todas las fechas del lease usan el reloj de la base (LOCALTIMESTAMP), nunca el de
+ * cada instancia: un nodo con el reloj adelantado no puede dar por vencido un lease
+ * vigente ni extender el suyo más allá del TTL
+ */
+@Repository
+public interface GraphBuildLeaseRepository extends JpaRepository<GraphBuildLease, String> {
+
+    /**
+     * Toma el lease si está libre, vencido o ya es nuestro (UPDATE condicional atómico)
+     * Retorna 1 si lo obtuvo
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE graph_build_lease " +
+            "SET owner_id = :ownerId, expires_at = LOCALTIMESTAMP + :ttlSeconds * INTERVAL '1' SECOND " +
+            "WHERE name = :name AND (owner_id IS NULL OR owner_id = :ownerId OR expires_at < LOCALTIMESTAMP)",
+            nativeQuery = true)
+    int tryAcquire(
+            @Param("name") String name,
+            @Param("ownerId") String ownerId,
+            @Param("ttlSeconds") long ttlSeconds
+    );
+
+    /**
+     * Crea la fila ya tomada por nosotros (falla con clave duplicada si otra instancia ganó)
+     * INSERT nativo: save() haría merge y podría pisar la fila de otra instancia
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO graph_build_lease (name, owner_id, expires_at, generation) " +
+            "VALUES (:name, :ownerId, LOCALTIMESTAMP + :ttlSeconds * INTERVAL '1' SECOND, 0)", nativeQuery = true)
+    int insert(
+            @Param("name") String name,
+            @Param("ownerId") String ownerId,
+            @Param("ttlSeconds") long ttlSeconds
+    );
+
+    /**
+     * Extiende el lease solo si seguimos siendo el dueño y no venció entretanto
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE graph_build_lease " +
+            "SET expires_at = LOCALTIMESTAMP + :ttlSeconds * INTERVAL '1' SECOND " +
+            "WHERE name = :name AND owner_id = :ownerId AND expires_at >= LOCALTIMESTAMP",
+            nativeQuery = true)
+    int renew(
+            @Param("name") String name,
+            @Param("ownerId") String ownerId,
+            @Param("ttlSeconds") long ttlSeconds
+    );
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE graph_build_lease SET owner_id = NULL, expires_at = LOCALTIMESTAMP " +
+            "WHERE name = :name AND owner_id = :ownerId", nativeQuery = true)
+    int release(
+            @Param("name") String name,
+            @Param("ownerId") String ownerId
+    );
+
+    /**
+     * Marca un grafo nuevo como publicado (solo el dueño de un lease vigente)
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE graph_build_lease SET generation = generation + 1, published_at = LOCALTIMESTAMP " +
+            "WHERE name = :name AND owner_id = :ownerId AND expires_at >= LOCALTIMESTAMP", nativeQuery = true)
+    int publish(
+            @Param("name") String name,
+            @Param("ownerId") String ownerId
+    );
+
+    @Query("SELECT l.generation FROM GraphBuildLease l WHERE l.name = :name")
+    Long findGeneration(@Param("name") String name);
+}
@@ -5,6 +5,7 @@ import com.roomierent.backend.model.entity.PropertyStatus;
 import com.roomierent.backend.model.entity.PropertyType;
 import com.roomierent.backend.model.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -12,10 +13,11 @@ import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface PropertyRepository extends JpaRepository<Property, Long> {
+public interface PropertyRepository extends JpaRepository<Property, Long>, JpaSpecificationExecutor<Property> {
 
     List<Property> findByOwner(User owner);
 
@@ -111,4 +113,36 @@ public interface PropertyRepository extends JpaRepository<Property, Long> {
             "LEFT JOIN FETCH p.owner " +
             "WHERE p.status = 'AVAILABLE'")
     List<Property> findAvailablePropertiesWithOwner();
+
+    /**
+     * Columnas de scoring de las propiedades disponibles (sin crear entidades)
+     * Orden: id, price, bedrooms, bathrooms, area, latitude, longitude,
+     * type, city, neighborhood, amenities
+     */
+    @Query("SELECT p.id, p.price, p.bedrooms, p.bathrooms, p.area, " +
+            "p.latitude, p.longitude, p.type, p.city, p.neighborhood, p.amenities " +
+            "FROM Property p WHERE p.status = 'AVAILABLE' " +
+            "ORDER BY p.id ASC")
+    List<Object[]> findAvailableScoringColumns();
+
+    /**
+     * Marca de cambios del catálogo: cantidad de propiedades disponibles y suma de un hash
+     * de las mismas columnas que findAvailableScoringColumns. Si cambia, alguna propiedad
+     * disponible se creó, eliminó o cambió en algo que afecta el scoring (en esta u otra
+     * instancia); vistas, favoritos y updatedAt no cuentan
+     * La suma no depende del orden, así que no necesita ordenar las filas
+     */
+    @Query(value = "SELECT COUNT(*), COALESCE(SUM(hashtext(CONCAT_WS('|', id, price, bedrooms, bathrooms, " +
+            "area, latitude, longitude, type, city, neighborhood, amenities))), 0) " +
+            "FROM properties WHERE status = 'AVAILABLE'", nativeQuery = true)
+    List<Object[]> findChangeMarker();
+
+    /**
+     * Carga un conjunto de propiedades con imágenes y propietario en una sola consulta
+     */
+    @Query("SELECT DISTINCT p FROM Property p " +
+            "LEFT JOIN FETCH p.images " +
+            "LEFT JOIN FETCH p.owner " +
+            "WHERE p.id IN :ids")
+    List<Property> findAllWithOwnerByIdIn(@Param("ids") Collection<Long> ids);
 }
\ No newline at end of file
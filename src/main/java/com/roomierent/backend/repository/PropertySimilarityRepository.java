@@ -0,0 +1,45 @@
+package com.roomierent.backend.repository;
+
+import com.roomierent.backend.model.entity.PropertySimilarity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface PropertySimilarityRepository extends JpaRepository<PropertySimilarity, Long> {
+
+    /**
+     * Vecinos de una propiedad en orden de ranking (usa el índice property_id, rank)
+     */
+    @Query("SELECT s.neighborId FROM PropertySimilarity s " +
+            "WHERE s.propertyId = :propertyId AND s.score >= :minScore " +
+            "ORDER BY s.rank ASC")
+    List<Long> findNeighborIds(
+            @Param("propertyId") Long propertyId,
+            @Param("minScore") double minScore,
+            Pageable pageable
+    );
+
+    /**
+     * Todas las filas (propiedad, vecino, score) para reconstruir el grafo publicado
+     */
+    @Query("SELECT s.propertyId, s.neighborId, s.score FROM PropertySimilarity s")
+    List<Object[]> findAllEdges();
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM PropertySimilarity s")
+    void deleteAllRows();
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM PropertySimilarity s WHERE s.propertyId IN :propertyIds")
+    void deleteByPropertyIds(@Param("propertyIds") Collection<Long> propertyIds);
+}
@@ -0,0 +1,70 @@
+package com.roomierent.backend.repository;
+
+import com.roomierent.backend.model.entity.Property;
+import com.roomierent.backend.model.entity.PropertyStatus;
+import com.roomierent.backend.model.entity.UserPreferences;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Especificaciones (Criteria API) para consultas dinámicas de propiedades
+ */
+public final class PropertySpecifications {
+
+    private PropertySpecifications() {
+    }
+
+    /**
+     * Propiedades disponibles que cumplen las restricciones duras de las preferencias
+     * (rango de precio, habitaciones, baños, área mínima y ciudad)
+     * Solo agrega los predicados que el usuario definió, así la base de datos
+     * puede usar los índices compuestos de la tabla properties
+     */
+    public static Specification<Property> availableMatching(UserPreferences preferences) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            predicates.add(cb.equal(root.get("status"), PropertyStatus.AVAILABLE));
+
+            if (preferences.getMinPrice() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("price"), preferences.getMinPrice()));
+            }
+
+            if (preferences.getMaxPrice() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("price"), preferences.getMaxPrice()));
+            }
+
+            if (preferences.getMinBedrooms() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("bedrooms"), preferences.getMinBedrooms()));
+            }
+
+            if (preferences.getMinBathrooms() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("bathrooms"), preferences.getMinBathrooms()));
+            }
+
+            if (preferences.getMinArea() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("area"), preferences.getMinArea()));
+            }
+
+            if (preferences.getPreferredCity() != null && !preferences.getPreferredCity().isEmpty()) {
+                predicates.add(cb.equal(
+                        cb.lower(root.get("city")),
+                        preferences.getPreferredCity().toLowerCase(Locale.ROOT)
+                ));
+            }
+
+            // Cargar imágenes y propietario en la misma consulta (no aplica a consultas COUNT)
+            if (query != null && !Long.class.equals(query.getResultType())) {
+                root.fetch("images", JoinType.LEFT);
+                root.fetch("owner", JoinType.LEFT);
+                query.distinct(true);
+            }
+
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+}
@@ -3,8 +3,12 @@ package com.roomierent.backend.repository;
 import com.roomierent.backend.model.entity.User;
 import com.roomierent.backend.model.entity.UserPreferences;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -17,4 +21,14 @@ public interface UserPreferencesRepository extends JpaRepository<UserPreferences
     boolean existsByUser(User user);
 
     void deleteByUser(User user);
+
+    @Query("SELECT MAX(p.updatedAt) FROM UserPreferences p")
+    LocalDateTime findLastUpdate();
+
+    /**
+     * Usuarios cuyas preferencias cambiaron desde la fecha indicada
+     * Orden: email del usuario, updatedAt
+     */
+    @Query("SELECT p.user.email, p.updatedAt FROM UserPreferences p WHERE p.updatedAt > :since")
+    List<Object[]> findUpdatedSince(@Param("since") LocalDateTime since);
 }
\ No newline at end of file
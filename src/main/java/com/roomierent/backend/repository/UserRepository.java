@@ -2,8 +2,12 @@ package com.roomierent.backend.repository;
 
 import com.roomierent.backend.model.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -12,4 +16,7 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
 
     boolean existsByEmail(String email);
+
+    @Query("SELECT u.email FROM User u WHERE u.id IN :ids")
+    List<String> findEmailsByIdIn(@Param("ids") Collection<Long> ids);
 }
\ No newline at end of file
@@ -1,12 +1,16 @@
 package com.roomierent.backend.service;
 
 import com.roomierent.backend.dto.PropertyResponse;
+import com.roomierent.backend.event.FavoriteChangedEvent;
 import com.roomierent.backend.model.entity.Favorite;
+import com.roomierent.backend.model.entity.FavoriteChange;
 import com.roomierent.backend.model.entity.Property;
 import com.roomierent.backend.model.entity.User;
+import com.roomierent.backend.repository.FavoriteChangeRepository;
 import com.roomierent.backend.repository.FavoriteRepository;
 import com.roomierent.backend.repository.PropertyRepository;
 import com.roomierent.backend.repository.UserRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -19,18 +23,24 @@ import java.util.stream.Collectors;
 public class FavoriteService {
 
     private final FavoriteRepository favoriteRepository;
+    private final FavoriteChangeRepository favoriteChangeRepository;
     private final UserRepository userRepository;
     private final PropertyRepository propertyRepository;
     private final PropertyService propertyService;
+    private final ApplicationEventPublisher eventPublisher;
 
     public FavoriteService(FavoriteRepository favoriteRepository,
+                           FavoriteChangeRepository favoriteChangeRepository,
                            UserRepository userRepository,
                            PropertyRepository propertyRepository,
-                           PropertyService propertyService) {
+                           PropertyService propertyService,
+                           ApplicationEventPublisher eventPublisher) {
         this.favoriteRepository = favoriteRepository;
+        this.favoriteChangeRepository = favoriteChangeRepository;
         this.userRepository = userRepository;
         this.propertyRepository = propertyRepository;
         this.propertyService = propertyService;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional
@@ -49,6 +59,10 @@ public class FavoriteService {
             favoriteRepository.save(favorite);
             property.incrementFavoriteCount();
             propertyRepository.save(property);
+            recordChange(user, propertyId, true);
+
+            eventPublisher.publishEvent(new FavoriteChangedEvent(
+                    user.getId(), userEmail, propertyId, FavoriteChangedEvent.Type.ADDED));
         }
 
         int count = property.getFavoriteCount();
@@ -70,12 +84,28 @@ public class FavoriteService {
                 property.setFavoriteCount(0);
             }
             propertyRepository.save(property);
+            recordChange(user, propertyId, false);
+
+            eventPublisher.publishEvent(new FavoriteChangedEvent(
+                    user.getId(), userEmail, propertyId, FavoriteChangedEvent.Type.REMOVED));
         }
 
         int count = property.getFavoriteCount();
         return Map.of("favoriteCount", count);
     }
 
+    /**
+     * Registra el cambio para las demás instancias (misma transacción que el favorito)
+     */
+    private void recordChange(User user, Long propertyId, boolean added) {
+        favoriteChangeRepository.save(FavoriteChange.builder()
+                .userId(user.getId())
+                .userEmail(user.getEmail())
+                .propertyId(propertyId)
+                .added(added)
+                .build());
+    }
+
     public Map<String, Boolean> isFavorite(String userEmail, Long propertyId) {
         User user = userRepository.findByEmail(userEmail)
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
@@ -2,11 +2,13 @@ package com.roomierent.backend.service;
 
 import com.roomierent.backend.dto.PropertyRequest;
 import com.roomierent.backend.dto.PropertyResponse;
+import com.roomierent.backend.event.PropertyChangedEvent;
 import com.roomierent.backend.model.entity.Property;
 import com.roomierent.backend.model.entity.PropertyImage;
 import com.roomierent.backend.model.entity.PropertyStatus;
 import com.roomierent.backend.model.entity.User;
 import com.roomierent.backend.repository.PropertyRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -19,10 +21,14 @@ public class PropertyService {
 
     private final PropertyRepository propertyRepository;
     private final UserService userService;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public PropertyService(PropertyRepository propertyRepository, UserService userService) {
+    public PropertyService(PropertyRepository propertyRepository,
+                           UserService userService,
+                           ApplicationEventPublisher eventPublisher) {
         this.propertyRepository = propertyRepository;
         this.userService = userService;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -76,6 +82,9 @@ public class PropertyService {
 
         System.out.println("✅ Propiedad creada: " + savedProperty.getTitle() + " (ID: " + savedProperty.getId() + ")");
 
+        eventPublisher.publishEvent(
+                new PropertyChangedEvent(savedProperty.getId(), PropertyChangedEvent.Type.CREATED));
+
         return convertToResponse(savedProperty);
     }
 
@@ -115,6 +124,11 @@ public class PropertyService {
                 .map(this::convertToResponse)
                 .collect(Collectors.toList());
     }
+
+    /**
+     * Elimina una propiedad del propietario autenticado
+     */
+    @Transactional
     public void deleteProperty(Long id, String email) {
         Property property = propertyRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Property not found"));
@@ -124,6 +138,8 @@ public class PropertyService {
         }
 
         propertyRepository.delete(property);
+
+        eventPublisher.publishEvent(new PropertyChangedEvent(id, PropertyChangedEvent.Type.DELETED));
     }
 
     /**
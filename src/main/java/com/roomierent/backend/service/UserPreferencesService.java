@@ -2,10 +2,12 @@ package com.roomierent.backend.service;
 
 import com.roomierent.backend.dto.UserPreferencesRequest;
 import com.roomierent.backend.dto.UserPreferencesResponse;
+import com.roomierent.backend.event.UserPreferencesChangedEvent;
 import com.roomierent.backend.model.entity.User;
 import com.roomierent.backend.model.entity.UserPreferences;
 import com.roomierent.backend.repository.UserPreferencesRepository;
 import com.roomierent.backend.repository.UserRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -18,11 +20,14 @@ public class UserPreferencesService {
 
     private final UserPreferencesRepository preferencesRepository;
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public UserPreferencesService(UserPreferencesRepository preferencesRepository,
-                                  UserRepository userRepository) {
+                                  UserRepository userRepository,
+                                  ApplicationEventPublisher eventPublisher) {
         this.preferencesRepository = preferencesRepository;
         this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional
@@ -52,6 +57,8 @@ public class UserPreferencesService {
 
         UserPreferences saved = preferencesRepository.save(preferences);
 
+        eventPublisher.publishEvent(new UserPreferencesChangedEvent(userEmail));
+
         return convertToResponse(saved);
     }
 
@@ -0,0 +1,181 @@
+package com.roomierent.backend.service.recommendation;
+
+import com.roomierent.backend.event.CatalogSnapshotRefreshedEvent;
+import com.roomierent.backend.model.entity.User;
+import com.roomierent.backend.model.entity.UserPreferences;
+import com.roomierent.backend.util.datastructures.PropertyCatalogSnapshot;
+import com.roomierent.backend.util.datastructures.TopKSelector;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ranking compartido para usuarios sin preferencias guardadas (cold start)
+ * Todos reciben las mismas preferencias por defecto, así que el resultado del scoring
+ * es idéntico: se calcula una vez por versión de catálogo y se sirve en O(limit)
+ *
+ * Se reconstruye en segundo plano cada vez que se publica un snapshot nuevo; mientras
+ * tanto las peticiones hacen el scoring completo como antes
+ */
+@Component
+public class ColdStartRanking {
+
+    private final PropertySnapshotService snapshotService;
+    private final ScoreBasedPropertyRecommender scorer;
+    private final boolean enabled;
+    private final int size;
+    private final CompiledPreferences defaults;
+    private final ExecutorService rebuildExecutor;
+    private final AtomicBoolean rebuildPending = new AtomicBoolean(false);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private volatile Ranking ranking;
+
+    public ColdStartRanking(
+            PropertySnapshotService snapshotService,
+            ScoreBasedPropertyRecommender scorer,
+            @Value("${recommendation.cold-start.enabled:true}") boolean enabled,
+            @Value("${recommendation.cold-start.size:200}") int size) {
+
+        this.snapshotService = snapshotService;
+        this.scorer = scorer;
+        this.enabled = enabled;
+        this.size = Math.max(size, 1);
+        this.defaults = CompiledPreferences.compileDefaults(defaultPreferences(null));
+        this.rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cold-start-ranking");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Preferencias por defecto de un usuario que todavía no configuró las suyas
+     */
+    public static UserPreferences defaultPreferences(User user) {
+        return UserPreferences.builder()
+                .user(user)
+                .minBedrooms(1)
+                .minBathrooms(1)
+                .priceWeight(0.3)
+                .locationWeight(0.25)
+                .amenitiesWeight(0.2)
+                .sizeWeight(0.15)
+                .typeWeight(0.1)
+                .build();
+    }
+
+    /**
+     * Top de IDs para las preferencias por defecto sobre este snapshot
+     *
+     * @return IDs de mejor a peor, o null si el ranking no corresponde a esta versión
+     *         del catálogo o no alcanza para el límite pedido
+     */
+    public List<Long> topIds(PropertyCatalogSnapshot snapshot, int limit) {
+        if (!enabled) {
+            return null;
+        }
+
+        Ranking current = ranking;
+        if (current == null || current.catalogVersion() != snapshot.getVersion()) {
+            misses.incrementAndGet();
+            requestRebuild();
+            return null;
+        }
+        if (limit > current.ids().length && !current.complete()) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        int count = Math.min(limit, current.ids().length);
+        List<Long> ids = new ArrayList<>(count);
+        for (int rank = 0; rank < count; rank++) {
+            ids.add(current.ids()[rank]);
+        }
+        hits.incrementAndGet();
+        return ids;
+    }
+
+    @EventListener
+    public void onCatalogRefreshed(CatalogSnapshotRefreshedEvent event) {
+        requestRebuild();
+    }
+
+    /**
+     * Programa la reconstrucción en segundo plano (los pedidos seguidos se agrupan)
+     */
+    public void requestRebuild() {
+        if (enabled && rebuildPending.compareAndSet(false, true)) {
+            rebuildExecutor.execute(() -> {
+                rebuildPending.set(false);
+                try {
+                    rebuild();
+                } catch (Exception e) {
+                    System.err.println("❌ Error construyendo ranking cold start: " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * Calcula el ranking para el snapshot publicado si todavía no existe
+     */
+    private void rebuild() {
+        PropertyCatalogSnapshot snapshot = snapshotService.getLoadedSnapshot();
+        Ranking current = ranking;
+        if (snapshot == null || (current != null && current.catalogVersion() == snapshot.getVersion())) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        TopKSelector top = scorer.selectTopK(snapshot, defaults, size);
+
+        long[] ids = new long[top.size()];
+        for (int rank = 0; rank < ids.length; rank++) {
+            ids[rank] = snapshot.getId(top.indexAt(rank));
+        }
+
+        // Si hubo menos candidatos que el tamaño pedido, el ranking ya los contiene a todos
+        ranking = new Ranking(snapshot.getVersion(), ids, ids.length < size);
+
+        System.out.println("🧊 Ranking cold start para snapshot v" + snapshot.getVersion() + ": " +
+                ids.length + " propiedades en " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Estado del ranking y aciertos/fallos al servirlo
+     */
+    public Map<String, Object> stats() {
+        Ranking current = ranking;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("catalogVersion", current != null ? current.catalogVersion() : -1L);
+        stats.put("size", current != null ? current.ids().length : 0);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    /**
+     * Ranking calculado para una versión del catálogo
+     */
+    private record Ranking(long catalogVersion, long[] ids, boolean complete) {
+    }
+}
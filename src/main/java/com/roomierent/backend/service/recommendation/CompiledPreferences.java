@@ -0,0 +1,224 @@
+package com.roomierent.backend.service.recommendation;
+
+import com.roomierent.backend.model.entity.UserPreferences;
+import com.roomierent.backend.util.PriceUtils;
+import com.roomierent.backend.util.datastructures.AmenityDictionary;
+import com.roomierent.backend.util.datastructures.TermDictionary;
+
+import java.util.Arrays;
+
+/**
+ * Preferencias del usuario traducidas a primitivos e ids del diccionario
+ * Se compilan una vez por versión de preferencias y se cachean por usuario
+ * (RecommendationManager), así el loop de scoring nunca toca la entidad JPA
+ *
+ * Los términos se buscan sin registrarlos (idOf/idsOf/knownMaskOf): el usuario puede
+ * mandar cualquier texto y solo las propiedades agregan términos al diccionario.
+ * Un término desconocido no coincide con nada; si después una propiedad lo registra,
+ * withCurrentDictionary vuelve a resolverlo
+ */
+public final class CompiledPreferences {
+
+    final long userId;                // -1 si no se conoce
+    final boolean defaults;           // el usuario no guardó preferencias (valores por defecto)
+    final boolean hasMinPrice;
+    final boolean hasMaxPrice;
+    final long minPriceCents;
+    final long maxPriceCents;
+    final int minBedrooms;            // Integer.MIN_VALUE = sin mínimo
+    final int minBathrooms;           // Integer.MIN_VALUE = sin mínimo
+    final double minArea;             // NaN = sin mínimo
+    final boolean hasCity;
+    final int cityId;
+    final boolean hasNeighborhoods;
+    final int[] neighborhoodIds;      // ordenados
+    final boolean hasAmenities;
+    final long[] desiredAmenityMask;  // solo amenities registrados
+    final int unknownAmenities;       // deseados que ninguna propiedad tiene (cuentan en la unión)
+    final int preferredTypeOrdinal;   // -1 = sin preferencia
+    final double priceWeight;
+    final double locationWeight;
+    final double amenitiesWeight;
+    final double sizeWeight;
+    final double typeWeight;
+    final Signature signature;
+
+    // Preferencias de origen, solo si quedaron términos sin resolver
+    private final UserPreferences unresolvedSource;
+    private final long dictionaryStamp;
+
+    private CompiledPreferences(UserPreferences preferences, boolean defaults) {
+        this.userId = preferences.getUser() != null && preferences.getUser().getId() != null
+                ? preferences.getUser().getId() : -1L;
+        this.defaults = defaults;
+        this.hasMinPrice = preferences.getMinPrice() != null;
+        this.hasMaxPrice = preferences.getMaxPrice() != null;
+        this.minPriceCents = hasMinPrice ? PriceUtils.toCents(preferences.getMinPrice()) : 0L;
+        this.maxPriceCents = hasMaxPrice ? PriceUtils.toCents(preferences.getMaxPrice()) : 0L;
+        this.minBedrooms = preferences.getMinBedrooms() != null ? preferences.getMinBedrooms() : Integer.MIN_VALUE;
+        this.minBathrooms = preferences.getMinBathrooms() != null ? preferences.getMinBathrooms() : Integer.MIN_VALUE;
+        this.minArea = preferences.getMinArea() != null ? preferences.getMinArea() : Double.NaN;
+        this.hasCity = preferences.getPreferredCity() != null && !preferences.getPreferredCity().isEmpty();
+        this.cityId = hasCity ? TermDictionary.CITIES.idOf(preferences.getPreferredCity()) : -1;
+        this.hasNeighborhoods = preferences.getPreferredNeighborhoods() != null &&
+                !preferences.getPreferredNeighborhoods().isEmpty();
+        this.neighborhoodIds = TermDictionary.NEIGHBORHOODS.idsOf(preferences.getPreferredNeighborhoods());
+        this.desiredAmenityMask = AmenityDictionary.knownMaskOf(preferences.getDesiredAmenities());
+        this.unknownAmenities = AmenityDictionary.unknownCount(preferences.getDesiredAmenities());
+        this.hasAmenities = AmenityDictionary.count(desiredAmenityMask) + unknownAmenities > 0;
+        this.preferredTypeOrdinal = preferences.getPreferredType() != null
+                ? preferences.getPreferredType().ordinal() : -1;
+        this.priceWeight = preferences.getPriceWeight();
+        this.locationWeight = preferences.getLocationWeight();
+        this.amenitiesWeight = preferences.getAmenitiesWeight();
+        this.sizeWeight = preferences.getSizeWeight();
+        this.typeWeight = preferences.getTypeWeight();
+        this.signature = new Signature(canonicalForm());
+
+        boolean unresolved = (hasCity && cityId < 0) ||
+                TermDictionary.NEIGHBORHOODS.unknownCount(preferences.getPreferredNeighborhoods()) > 0 ||
+                unknownAmenities > 0;
+        this.unresolvedSource = unresolved ? preferences : null;
+        this.dictionaryStamp = dictionaryStamp();
+    }
+
+    public static CompiledPreferences compile(UserPreferences preferences) {
+        return new CompiledPreferences(preferences, false);
+    }
+
+    /**
+     * Compila las preferencias por defecto de un usuario que no guardó las suyas
+     */
+    public static CompiledPreferences compileDefaults(UserPreferences defaultPreferences) {
+        return new CompiledPreferences(defaultPreferences, true);
+    }
+
+    /**
+     * Retorna estas preferencias, o una compilación nueva si tenían términos desconocidos
+     * y desde entonces se registraron términos nuevos (una propiedad en esa ciudad, etc.)
+     */
+    public CompiledPreferences withCurrentDictionary() {
+        if (unresolvedSource == null || dictionaryStamp == dictionaryStamp()) {
+            return this;
+        }
+        return new CompiledPreferences(unresolvedSource, defaults);
+    }
+
+    /**
+     * Los diccionarios solo crecen: si la suma de tamaños no cambió, nada se registró
+     */
+    private static long dictionaryStamp() {
+        return (long) TermDictionary.CITIES.size() +
+                TermDictionary.NEIGHBORHOODS.size() +
+                TermDictionary.AMENITIES.size();
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public boolean isDefaults() {
+        return defaults;
+    }
+
+    /**
+     * Forma canónica de los campos que afectan el ranking (no incluye el usuario):
+     * dos usuarios con la misma firma reciben exactamente las mismas recomendaciones
+     * del scoring, así que el resultado se puede compartir entre ellos
+     */
+    public Signature getSignature() {
+        return signature;
+    }
+
+    /**
+     * Codifica los campos normalizados en un arreglo de long: precios en centavos,
+     * ids del diccionario (ya ordenados y sin repetir), bits de los doubles y la
+     * máscara de amenities (que knownMaskOf ya construye sin palabras vacías al final)
+     */
+    private long[] canonicalForm() {
+        long[] form = new long[14 + neighborhoodIds.length + desiredAmenityMask.length];
+        int p = 0;
+        form[p++] = (hasMinPrice ? 1L : 0L) | (hasMaxPrice ? 2L : 0L) |
+                (hasCity ? 4L : 0L) | (hasNeighborhoods ? 8L : 0L);
+        form[p++] = minPriceCents;
+        form[p++] = maxPriceCents;
+        form[p++] = minBedrooms;
+        form[p++] = minBathrooms;
+        form[p++] = Double.doubleToLongBits(minArea);
+        form[p++] = cityId;
+        form[p++] = preferredTypeOrdinal;
+        form[p++] = unknownAmenities;
+        // + 0.0 convierte -0.0 en 0.0 para que ambos den la misma firma
+        form[p++] = Double.doubleToLongBits(priceWeight + 0.0);
+        form[p++] = Double.doubleToLongBits(locationWeight + 0.0);
+        form[p++] = Double.doubleToLongBits(amenitiesWeight + 0.0);
+        form[p++] = Double.doubleToLongBits(sizeWeight + 0.0);
+        form[p++] = Double.doubleToLongBits(typeWeight + 0.0);
+        for (int id : neighborhoodIds) {
+            form[p++] = id;
+        }
+        System.arraycopy(desiredAmenityMask, 0, form, p, desiredAmenityMask.length);
+        return form;
+    }
+
+    boolean matchesCity(int propertyCityId) {
+        return cityId >= 0 && propertyCityId == cityId;
+    }
+
+    boolean hasMinArea() {
+        return !Double.isNaN(minArea);
+    }
+
+    /**
+     * Firma de preferencias equivalentes: hash de 64 bits precalculado para buscar
+     * rápido y comparación de la forma canónica completa para que una colisión
+     * nunca mezcle rankings distintos
+     */
+    public static final class Signature {
+
+        private final long[] form;
+        private final long hash;
+
+        private Signature(long[] form) {
+            this.form = form;
+
+            // Mezcla tipo splitmix64 sobre cada palabra (el largo separa listas de distinto tamaño)
+            long h = form.length;
+            for (long word : form) {
+                h = mix(h ^ word);
+            }
+            this.hash = h;
+        }
+
+        private static long mix(long z) {
+            z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+            z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+            return z ^ (z >>> 31);
+        }
+
+        public long getHash() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Signature signature)) {
+                return false;
+            }
+            return hash == signature.hash && Arrays.equals(form, signature.form);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hash);
+        }
+
+        @Override
+        public String toString() {
+            return Long.toHexString(hash);
+        }
+    }
+}
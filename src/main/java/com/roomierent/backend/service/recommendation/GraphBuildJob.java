@@ -0,0 +1,125 @@
+package com.roomierent.backend.service.recommendation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Construcción del grafo de similitud en segundo plano
+ * El builder reporta el avance (pares comparados, aristas) y consulta la cancelación
+ */
+public class GraphBuildJob implements PropertyGraphBuilder.BuildProgress {
+
+    public enum State {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED,
+        CANCELLED,
+        SKIPPED     // otra instancia tiene el lease y está construyendo
+    }
+
+    private final long id;
+    private final long createdAt = System.currentTimeMillis();
+    private final AtomicLong pairsDone = new AtomicLong();
+    private final AtomicLong edges = new AtomicLong();
+
+    private volatile State state = State.QUEUED;
+    private volatile boolean cancelRequested;
+    private volatile long startedAt;
+    private volatile long finishedAt;
+    private volatile int nodes;
+    private volatile String error;
+
+    GraphBuildJob(long id) {
+        this.id = id;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * En cola o ejecutándose (las nuevas peticiones se unen a este trabajo)
+     */
+    public boolean isActive() {
+        return state == State.QUEUED || state == State.RUNNING;
+    }
+
+    /**
+     * Solicita la cancelación; el builder la detecta en la siguiente fila o bloque
+     */
+    public void cancel() {
+        cancelRequested = true;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelRequested;
+    }
+
+    @Override
+    public void onProgress(long pairs, long newEdges) {
+        pairsDone.addAndGet(pairs);
+        edges.addAndGet(newEdges);
+    }
+
+    void markRunning() {
+        startedAt = System.currentTimeMillis();
+        state = State.RUNNING;
+    }
+
+    void setNodes(int nodes) {
+        this.nodes = nodes;
+    }
+
+    void markCompleted(int edgeCount) {
+        edges.set(edgeCount);
+        finish(State.COMPLETED);
+    }
+
+    void markCancelled() {
+        finish(State.CANCELLED);
+    }
+
+    void markSkipped(String reason) {
+        error = reason;
+        finish(State.SKIPPED);
+    }
+
+    void markFailed(String message) {
+        error = message;
+        finish(State.FAILED);
+    }
+
+    private void finish(State finalState) {
+        finishedAt = System.currentTimeMillis();
+        state = finalState;
+    }
+
+    /**
+     * Estado del trabajo para el endpoint de progreso
+     */
+    public Map<String, Object> toMap() {
+        long start = startedAt;
+        long end = finishedAt > 0 ? finishedAt : System.currentTimeMillis();
+
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("jobId", id);
+        status.put("state", state.name());
+        status.put("cancelRequested", cancelRequested);
+        status.put("nodes", nodes);
+        status.put("pairsDone", pairsDone.get());
+        status.put("edges", edges.get());
+        status.put("queuedMs", (start > 0 ? start : end) - createdAt);
+        status.put("elapsedMs", start > 0 ? end - start : 0L);
+        if (error != null) {
+            status.put(state == State.FAILED ? "error" : "detail", error);
+        }
+        return status;
+    }
+}
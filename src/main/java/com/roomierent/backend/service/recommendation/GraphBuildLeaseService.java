@@ -0,0 +1,188 @@
+package com.roomierent.backend.service.recommendation;
+
+import com.roomierent.backend.repository.GraphBuildLeaseRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Elección de líder para construir el grafo: una fila en graph_build_lease
+ * Solo la instancia que tiene el lease vigente construye; mientras construye lo
+ * renueva en segundo plano. Si la instancia muere, el lease vence y otra lo toma
+ * El vencimiento se calcula con el reloj de la base (GraphBuildLeaseRepository)
+ *
+ * Desactivado (una sola instancia), tryAcquire siempre retorna true
+ */
+@Service
+public class GraphBuildLeaseService {
+
+    private static final String LEASE_NAME = "property-graph";
+
+    private final GraphBuildLeaseRepository leaseRepository;
+    private final boolean enabled;
+    private final long ttlSeconds;
+    private final String nodeId;
+    private final ScheduledExecutorService heartbeat;
+
+    private ScheduledFuture<?> renewal;
+    private volatile boolean held;
+
+    public GraphBuildLeaseService(
+            GraphBuildLeaseRepository leaseRepository,
+            @Value("${recommendation.graph.lease.enabled:false}") boolean enabled,
+            @Value("${recommendation.graph.lease.ttl-seconds:300}") long ttlSeconds,
+            @Value("${recommendation.graph.lease.node-id:}") String nodeId) {
+
+        this.leaseRepository = leaseRepository;
+        this.enabled = enabled;
+        this.ttlSeconds = Math.max(ttlSeconds, 15);
+        this.nodeId = nodeId == null || nodeId.isBlank() ? defaultNodeId() : nodeId;
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "graph-lease-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        if (enabled) {
+            System.out.println("✅ Lease de construcción del grafo activo (nodo " + this.nodeId + ")");
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Intenta tomar el lease; si lo obtiene lo renueva hasta release()
+     */
+    public synchronized boolean tryAcquire() {
+        if (!enabled) {
+            return true;
+        }
+
+        boolean acquired = leaseRepository.tryAcquire(LEASE_NAME, nodeId, ttlSeconds) == 1;
+        if (!acquired && !leaseRepository.existsById(LEASE_NAME)) {
+            acquired = insertLease();
+        }
+
+        if (acquired) {
+            held = true;
+            startRenewal();
+        }
+        return acquired;
+    }
+
+    /**
+     * Indica si seguimos teniendo el lease (false si una renovación falló)
+     */
+    public boolean isHeld() {
+        return !enabled || held;
+    }
+
+    /**
+     * Marca el grafo recién construido como publicado
+     *
+     * @return la nueva generación, o -1 si ya no teníamos el lease
+     */
+    public synchronized long publish() {
+        if (!enabled) {
+            return 0;
+        }
+        if (leaseRepository.publish(LEASE_NAME, nodeId) != 1) {
+            held = false;
+            return -1;
+        }
+        return publishedGeneration();
+    }
+
+    /**
+     * Libera el lease para que otra instancia pueda construir sin esperar el vencimiento
+     */
+    public synchronized void release() {
+        if (!enabled) {
+            return;
+        }
+        stopRenewal();
+        held = false;
+        try {
+            leaseRepository.release(LEASE_NAME, nodeId);
+        } catch (Exception e) {
+            // Vence solo al cumplirse el TTL
+            System.err.println("⚠️ No se pudo liberar el lease del grafo: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Última generación publicada por cualquier instancia (0 si nunca se publicó)
+     */
+    public long publishedGeneration() {
+        if (!enabled) {
+            return 0;
+        }
+        Long generation = leaseRepository.findGeneration(LEASE_NAME);
+        return generation == null ? 0 : generation;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (held) {
+            release();
+        }
+        heartbeat.shutdownNow();
+    }
+
+    private boolean insertLease() {
+        try {
+            return leaseRepository.insert(LEASE_NAME, nodeId, ttlSeconds) == 1;
+        } catch (DataIntegrityViolationException e) {
+            // Otra instancia creó la fila primero: es su lease
+            return false;
+        }
+    }
+
+    private void startRenewal() {
+        stopRenewal();
+        long period = Math.max(ttlSeconds / 3, 1);
+        renewal = heartbeat.scheduleAtFixedRate(this::renew, period, period, TimeUnit.SECONDS);
+    }
+
+    private void stopRenewal() {
+        if (renewal != null) {
+            renewal.cancel(false);
+            renewal = null;
+        }
+    }
+
+    private void renew() {
+        try {
+            if (leaseRepository.renew(LEASE_NAME, nodeId, ttlSeconds) != 1) {
+                held = false;
+                System.err.println("⚠️ Lease del grafo perdido por el nodo " + nodeId);
+            }
+        } catch (Exception e) {
+            System.err.println("⚠️ Error renovando el lease del grafo: " + e.getMessage());
+        }
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "node";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
@@ -0,0 +1,62 @@
+package com.roomierent.backend.service.recommendation;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tareas periódicas del grafo de similitud en un despliegue con varias instancias
+ *  - Reconstrucción programada: todas las instancias lo intentan, pero solo la que
+ *    obtiene el lease (GraphBuildLeaseService) construye; las demás omiten el trabajo
+ *  - Sincronización: las instancias que no construyeron cargan el grafo publicado
+ *  - Guardado: los cambios incrementales del grafo se escriben (snapshot y tabla) por intervalos,
+ *    solo desde la instancia que obtiene el lease
+ */
+@Component
+public class GraphRebuildScheduler {
+
+    private final RecommendationManager recommendationManager;
+    private final boolean scheduledRebuilds;
+
+    public GraphRebuildScheduler(
+            RecommendationManager recommendationManager,
+            @Value("${recommendation.graph.rebuild.enabled:false}") boolean scheduledRebuilds) {
+
+        this.recommendationManager = recommendationManager;
+        this.scheduledRebuilds = scheduledRebuilds;
+    }
+
+    @Scheduled(
+            initialDelayString = "${recommendation.graph.rebuild.interval-ms:3600000}",
+            fixedDelayString = "${recommendation.graph.rebuild.interval-ms:3600000}"
+    )
+    public void rebuildIfLeader() {
+        if (scheduledRebuilds) {
+            recommendationManager.startGraphBuild();
+        }
+    }
+
+    @Scheduled(
+            initialDelayString = "${recommendation.graph.lease.poll-ms:30000}",
+            fixedDelayString = "${recommendation.graph.lease.poll-ms:30000}"
+    )
+    public void syncPublishedGraph() {
+        try {
+            recommendationManager.syncPublishedGraph();
+        } catch (Exception e) {
+            System.err.println("❌ Error consultando el grafo publicado: " + e.getMessage());
+        }
+    }
+
+    @Scheduled(
+            initialDelayString = "${recommendation.graph.flush-interval-ms:60000}",
+            fixedDelayString = "${recommendation.graph.flush-interval-ms:60000}"
+    )
+    public void flushGraphChanges() {
+        try {
+            recommendationManager.flushGraphChanges();
+        } catch (Exception e) {
+            System.err.println("❌ Error guardando el grafo: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package com.roomierent.backend.service.recommendation;
+
+import com.roomierent.backend.event.FavoriteChangedEvent;
+import com.roomierent.backend.model.entity.FavoriteChange;
+import com.roomierent.backend.model.entity.Property;
+import com.roomierent.backend.repository.FavoriteChangeRepository;
+import com.roomierent.backend.repository.FavoriteRepository;
+import com.roomierent.backend.repository.UserRepository;
+import com.roomierent.backend.util.datastructures.CoFavoriteMatrix;
+import com.roomierent.backend.util.datastructures.PropertyCatalogSnapshot;
+import com.roomierent.backend.util.datastructures.TopKSelector;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Filtrado colaborativo item-item a partir de los favoritos
+ * "A quienes les gustó lo mismo que a ti también guardaron...": suma las filas
+ * de co-favoritos (top-M) de cada favorito del usuario
+ *
+ * La matriz se arma una vez desde la tabla favorites y luego se actualiza con cada
+ * FavoriteChangedEvent. Los usuarios sin favoritos (o sin co-favoritos) reciben
+ * las recomendaciones por scoring de preferencias
+ *
+ * Los favoritos agregados o quitados en otras instancias se leen periódicamente del
+ * registro favorite_changes (checkForChanges), que FavoriteService escribe en la misma
+ * transacción que el cambio. Cada usuario afectado recibe una versión nueva de
+ * preferencias, también cuando una reconstrucción completa cambia sus favoritos
+ */
+@Component
+public class ItemItemPropertyRecommender implements PropertyRecommender {
+
+    private final FavoriteRepository favoriteRepository;
+    private final FavoriteChangeRepository favoriteChangeRepository;
+    private final UserRepository userRepository;
+    private final ScoreBasedPropertyRecommender fallback;
+    private final PreferencesVersionTracker preferencesVersions;
+    private final int maxNeighbors;
+    private final long changeLogWindowSeconds;
+    private final long changeLogRetentionHours;
+    private final ExecutorService maintenanceExecutor;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private CoFavoriteMatrix matrix;
+    private volatile boolean built;
+    // Lectura de favorite_changes (solo desde maintenanceExecutor): todo id <= changeWatermark
+    // ya está en la matriz; appliedChanges guarda los aplicados por encima de la marca
+    private long changeWatermark;
+    private final Set<Long> appliedChanges = new HashSet<>();
+    private LocalDateTime lastChangeSync;
+
+    public ItemItemPropertyRecommender(
+            FavoriteRepository favoriteRepository,
+            FavoriteChangeRepository favoriteChangeRepository,
+            UserRepository userRepository,
+            ScoreBasedPropertyRecommender fallback,
+            PreferencesVersionTracker preferencesVersions,
+            @Value("${recommendation.cf.max-neighbors:50}") int maxNeighbors,
+            @Value("${recommendation.cf.change-log.window-seconds:120}") long changeLogWindowSeconds,
+            @Value("${recommendation.cf.change-log.retention-hours:24}") long changeLogRetentionHours) {
+
+        this.favoriteRepository = favoriteRepository;
+        this.favoriteChangeRepository = favoriteChangeRepository;
+        this.userRepository = userRepository;
+        this.fallback = fallback;
+        this.preferencesVersions = preferencesVersions;
+        this.maxNeighbors = maxNeighbors;
+        this.changeLogWindowSeconds = Math.max(changeLogWindowSeconds, 0);
+        this.changeLogRetentionHours = Math.max(changeLogRetentionHours, 1);
+        this.matrix = new CoFavoriteMatrix(maxNeighbors);
+        this.maintenanceExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "item-item-cf-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Arma la matriz al arrancar, en segundo plano
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        maintenanceExecutor.execute(() -> {
+            try {
+                rebuild();
+            } catch (Exception e) {
+                System.err.println("❌ Error construyendo matriz de co-favoritos: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Reconstruye la matriz completa desde la tabla favorites (desde maintenanceExecutor)
+     * Si ya había una matriz, los usuarios cuyos favoritos cambiaron reciben versión nueva
+     */
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+
+        // Se lee antes que los pares: los cambios de la ventana reciente se vuelven a aplicar
+        // en orden (add/remove idempotentes), así nada confirmado durante la carga se pierde
+        LocalDateTime now = LocalDateTime.now();
+        Long watermark = favoriteChangeRepository.findMaxIdBefore(now.minusSeconds(changeLogWindowSeconds));
+        List<Object[]> pairs = favoriteRepository.findAllUserPropertyPairs();
+        long[] userIds = new long[pairs.size()];
+        long[] propertyIds = new long[pairs.size()];
+        for (int i = 0; i < pairs.size(); i++) {
+            userIds[i] = (Long) pairs.get(i)[0];
+            propertyIds[i] = (Long) pairs.get(i)[1];
+        }
+
+        CoFavoriteMatrix rebuilt = new CoFavoriteMatrix(maxNeighbors);
+        rebuilt.addAll(userIds, propertyIds, pairs.size());
+
+        CoFavoriteMatrix previous;
+        boolean wasBuilt = built;
+        lock.writeLock().lock();
+        try {
+            previous = matrix;
+            matrix = rebuilt;
+            built = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        changeWatermark = watermark != null ? watermark : 0L;
+        appliedChanges.clear();
+        lastChangeSync = now;
+
+        if (wasBuilt) {
+            bumpChangedUsers(previous, rebuilt);
+        }
+
+        System.out.println("🤝 Matriz de co-favoritos construida: " + rebuilt.stats() + " en " +
+                (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Aplica el cambio de favoritos después del commit (add/remove son idempotentes,
+     * así que un evento ya incluido en la carga inicial no cuenta dos veces)
+     *
+     * La versión de preferencias del usuario se incrementa aquí, cuando la matriz ya
+     * tiene el cambio: una petición que llega antes calcula con la matriz anterior y
+     * guarda ese resultado con la versión anterior, nunca con la nueva
+     */
+    @TransactionalEventListener
+    public void onFavoriteChanged(FavoriteChangedEvent event) {
+        maintenanceExecutor.execute(() -> {
+            lock.writeLock().lock();
+            try {
+                if (event.getType() == FavoriteChangedEvent.Type.ADDED) {
+                    matrix.add(event.getUserId(), event.getPropertyId());
+                } else {
+                    matrix.remove(event.getUserId(), event.getPropertyId());
+                }
+            } finally {
+                lock.writeLock().unlock();
+                preferencesVersions.bump(event.getUserEmail());
+            }
+        });
+    }
+
+    /**
+     * Aplica los favoritos que otras instancias agregaron o quitaron desde la última revisión
+     * Se llama periódicamente (RecommendationSyncScheduler)
+     */
+    public void checkForChanges() {
+        if (!built) {
+            return;
+        }
+
+        maintenanceExecutor.execute(() -> {
+            try {
+                syncWithChangeLog();
+            } catch (Exception e) {
+                System.err.println("❌ Error sincronizando matriz de co-favoritos: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Aplica en orden de id los cambios del registro favorite_changes que todavía no aplicó
+     *
+     * Los ids no se confirman en orden (dos transacciones concurrentes), así que cada
+     * consulta vuelve a leer desde changeWatermark: los cambios de la ventana reciente
+     * se recuerdan en appliedChanges para no aplicarlos dos veces, y la marca solo avanza
+     * sobre cambios más viejos que la ventana. Con add/remove idempotentes y los cambios
+     * de un mismo usuario en orden, el resultado converge al estado de la tabla
+     */
+    private void syncWithChangeLog() {
+        LocalDateTime now = LocalDateTime.now();
+        if (lastChangeSync != null && lastChangeSync.isBefore(now.minusHours(changeLogRetentionHours))) {
+            // El registro pudo purgarse antes de leerlo: se reconstruye desde favorites
+            rebuild();
+            return;
+        }
+
+        List<FavoriteChange> changes = favoriteChangeRepository.findAfter(changeWatermark);
+        Set<String> changedUsers = new HashSet<>();
+        LocalDateTime newest = null;
+
+        lock.writeLock().lock();
+        try {
+            for (FavoriteChange change : changes) {
+                if (appliedChanges.add(change.getId())) {
+                    boolean changed = change.getAdded()
+                            ? matrix.add(change.getUserId(), change.getPropertyId())
+                            : matrix.remove(change.getUserId(), change.getPropertyId());
+                    if (changed) {
+                        changedUsers.add(change.getUserEmail());
+                    }
+                }
+                if (newest == null || change.getCreatedAt().isAfter(newest)) {
+                    newest = change.getCreatedAt();
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        for (String email : changedUsers) {
+            preferencesVersions.bump(email);
+        }
+
+        if (newest != null) {
+            LocalDateTime cutoff = newest.minusSeconds(changeLogWindowSeconds);
+            for (FavoriteChange change : changes) {
+                if (change.getCreatedAt().isBefore(cutoff)) {
+                    changeWatermark = Math.max(changeWatermark, change.getId());
+                }
+            }
+            appliedChanges.removeIf(id -> id <= changeWatermark);
+        }
+        lastChangeSync = now;
+
+        // Cualquier instancia puede purgar: el borrado es idempotente
+        favoriteChangeRepository.deleteOlderThan(now.minusHours(changeLogRetentionHours));
+    }
+
+    /**
+     * Incrementa la versión de los usuarios cuyos favoritos difieren entre ambas matrices
+     */
+    private void bumpChangedUsers(CoFavoriteMatrix previous, CoFavoriteMatrix current) {
+        Set<Long> candidates = new HashSet<>(previous.userIds());
+        candidates.addAll(current.userIds());
+
+        Set<Long> changed = new HashSet<>();
+        for (Long userId : candidates) {
+            if (!Arrays.equals(previous.favoritesOf(userId), current.favoritesOf(userId))) {
+                changed.add(userId);
+            }
+        }
+        if (!changed.isEmpty()) {
+            for (String email : userRepository.findEmailsByIdIn(changed)) {
+                preferencesVersions.bump(email);
+            }
+            System.out.println("🤝 Favoritos distintos tras reconstruir: " + changed.size() + " usuarios");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        maintenanceExecutor.shutdownNow();
+    }
+
+    @Override
+    public List<Property> recommend(
+            List<Property> availableProperties,
+            CompiledPreferences preferences,
+            int limit
+    ) {
+        Map<Long, Double> scores = scoreForUser(preferences.getUserId());
+        if (scores.isEmpty()) {
+            return fallback.recommend(availableProperties, preferences, limit);
+        }
+
+        TopKSelector top = new TopKSelector(limit, availableProperties.size());
+        for (int i = 0; i < availableProperties.size(); i++) {
+            Double score = scores.get(availableProperties.get(i).getId());
+            if (score != null) {
+                top.offer(score, i);
+            }
+        }
+        if (top.size() == 0) {
+            return fallback.recommend(availableProperties, preferences, limit);
+        }
+        top.sortDescending();
+
+        List<Property> recommendations = new ArrayList<>(top.size());
+        for (int rank = 0; rank < top.size(); rank++) {
+            recommendations.add(availableProperties.get(top.indexAt(rank)));
+        }
+        return recommendations;
+    }
+
+    @Override
+    public TopKSelector selectTopK(
+            PropertyCatalogSnapshot snapshot,
+            CompiledPreferences preferences,
+            int k
+    ) {
+        Map<Long, Double> scores = scoreForUser(preferences.getUserId());
+
+        // Solo cuentan los candidatos que siguen disponibles en el snapshot
+        TopKSelector top = new TopKSelector(k, scores.size());
+        for (Map.Entry<Long, Double> candidate : scores.entrySet()) {
+            int row = snapshot.indexOf(candidate.getKey());
+            if (row >= 0) {
+                top.offer(candidate.getValue(), row);
+            }
+        }
+
+        if (top.size() == 0) {
+            return fallback.selectTopK(snapshot, preferences, k);
+        }
+
+        System.out.println("   🤝 Item-item CF: " + scores.size() + " co-favoritos candidatos");
+        return top.sortDescending();
+    }
+
+    /**
+     * Estadísticas de la matriz (ítems, usuarios, entradas)
+     */
+    public Map<String, Object> stats() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> stats = matrix.stats();
+            stats.put("built", built);
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<Long, Double> scoreForUser(long userId) {
+        if (!built || userId < 0) {
+            return Collections.emptyMap();
+        }
+
+        lock.readLock().lock();
+        try {
+            return matrix.scoreForUser(userId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String getStrategyName() {
+        return "Item-Item Collaborative Filtering (Favorites)";
+    }
+}
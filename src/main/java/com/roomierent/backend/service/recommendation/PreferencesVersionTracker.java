@@ -0,0 +1,93 @@
+package com.roomierent.backend.service.recommendation;
+
+import com.roomierent.backend.event.UserPreferencesChangedEvent;
+import com.roomierent.backend.repository.UserPreferencesRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lleva una versión por usuario que aumenta cada vez que cambia sus preferencias
+ * (o sus favoritos, de los que depende el filtrado colaborativo)
+ * Las cachés de recomendación la incluyen en su clave para nunca servir datos viejos
+ *
+ * Los cambios de favoritos no se escuchan aquí: ItemItemPropertyRecommender incrementa
+ * la versión después de aplicar el cambio a la matriz de co-favoritos
+ *
+ * El evento solo llega a la instancia que guardó las preferencias: las demás ven el
+ * cambio al consultar periódicamente updatedAt (checkForChanges). Como updatedAt lo
+ * pone el reloj de la instancia que escribió, la consulta repasa una ventana de
+ * tolerancia hacia atrás y solo incrementa las filas que no había visto
+ */
+@Component
+public class PreferencesVersionTracker {
+
+    private final UserPreferencesRepository preferencesRepository;
+    private final long clockSkewSeconds;
+    private final Map<String, Long> versions = new ConcurrentHashMap<>();
+
+    // Estado de checkForChanges (solo lo usa el hilo del scheduler, bajo synchronized)
+    private final Map<String, LocalDateTime> recentlySeen = new HashMap<>();
+    private LocalDateTime watermark;
+
+    public PreferencesVersionTracker(
+            UserPreferencesRepository preferencesRepository,
+            @Value("${recommendation.sync.clock-skew-seconds:30}") long clockSkewSeconds) {
+
+        this.preferencesRepository = preferencesRepository;
+        this.clockSkewSeconds = Math.max(clockSkewSeconds, 0);
+    }
+
+    /**
+     * Versión actual de las preferencias del usuario (0 si nunca cambiaron desde el arranque)
+     */
+    public long getVersion(String userEmail) {
+        return versions.getOrDefault(userEmail, 0L);
+    }
+
+    public long bump(String userEmail) {
+        return versions.merge(userEmail, 1L, Long::sum);
+    }
+
+    @TransactionalEventListener
+    public void onPreferencesChanged(UserPreferencesChangedEvent event) {
+        bump(event.getUserEmail());
+    }
+
+    /**
+     * Incrementa la versión de los usuarios cuyas preferencias cambiaron en otra instancia
+     * Se llama periódicamente (RecommendationSyncScheduler). La primera llamada solo fija
+     * el punto de partida: al arrancar las cachés están vacías
+     */
+    public synchronized void checkForChanges() {
+        if (watermark == null) {
+            LocalDateTime last = preferencesRepository.findLastUpdate();
+            watermark = last != null ? last : LocalDateTime.of(1970, 1, 1, 0, 0);
+            return;
+        }
+
+        LocalDateTime since = watermark.minusSeconds(clockSkewSeconds);
+        List<Object[]> rows = preferencesRepository.findUpdatedSince(since);
+
+        for (Object[] row : rows) {
+            String email = (String) row[0];
+            LocalDateTime updatedAt = (LocalDateTime) row[1];
+            if (!updatedAt.equals(recentlySeen.put(email, updatedAt))) {
+                bump(email);
+            }
+            if (updatedAt.isAfter(watermark)) {
+                watermark = updatedAt;
+            }
+        }
+
+        // Lo que quedó fuera de la ventana ya no vuelve a aparecer en la consulta
+        LocalDateTime cutoff = watermark.minusSeconds(clockSkewSeconds);
+        recentlySeen.values().removeIf(seen -> seen.isBefore(cutoff));
+    }
+}
@@ -0,0 +1,692 @@
+package com.roomierent.backend.service.recommendation;
+
+import com.roomierent.backend.util.CosineKernel;
+import com.roomierent.backend.util.SimilarityCalculator;
+import com.roomierent.backend.util.datastructures.FeatureMatrix;
+import com.roomierent.backend.util.datastructures.PropertyCatalogSnapshot;
+import com.roomierent.backend.util.datastructures.PropertyFeatures;
+import com.roomierent.backend.util.datastructures.PropertyGraph;
+import com.roomierent.backend.util.datastructures.TopKSelector;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Calcula las aristas del grafo de similitud entre propiedades
+ *
+ * Modos de construcción:
+ *  - FULL: compara todos los pares (exacto, O(n²), un solo hilo)
+ *  - BLOCKED: agrupa por ciudad + celda geográfica y compara solo dentro de cada
+ *    bloque y con las celdas vecinas de la misma ciudad, procesando los bloques en
+ *    paralelo. Es una aproximación: los pares de ciudades distintas casi nunca
+ *    superan el umbral porque la ubicación pesa 30% de la similitud
+ *  - KNN: conserva a lo sumo K vecinos por nodo (heaps acotados por nodo) y descarta
+ *    los pares cuya cota superior de similitud no alcanza al K-ésimo mejor actual.
+ *    Las aristas quedan en O(n·K); un par se guarda si está en el top-K de alguno
+ *
+ * El coseno se calcula en lote con el CosineKernel disponible sobre los vectores
+ * normalizados (FeatureMatrix): en FULL y BLOCKED una fila contra un rango contiguo;
+ * en KNN primero se aplica la cota y solo las filas que sobreviven pasan al kernel
+ */
+@Component
+public class PropertyGraphBuilder {
+
+    // Celda para propiedades sin coordenadas: se compara con todas las celdas de su ciudad
+    private static final long NO_CELL = Long.MIN_VALUE;
+
+    public enum BuildMode {
+        FULL,
+        BLOCKED,
+        KNN
+    }
+
+    /**
+     * Avance de una construcción: el builder reporta pares comparados y aristas
+     * por fila o bloque, y se detiene con CancellationException si se cancela
+     */
+    public interface BuildProgress {
+
+        BuildProgress NONE = new BuildProgress() {
+            @Override
+            public void onProgress(long pairs, long edges) {
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return false;
+            }
+        };
+
+        void onProgress(long pairs, long edges);
+
+        boolean isCancelled();
+    }
+
+    // Margen para que el redondeo nunca descarte un par que sí alcanzaba el top-K
+    private static final double BOUND_EPSILON = 1e-9;
+
+    // Candidatos por tanda en KNN: la cota se evalúa con el K-ésimo de la tanda anterior
+    private static final int KNN_BATCH = 64;
+
+    private final BuildMode buildMode;
+    private final double cellSizeDegrees;
+    private final int maxNeighbors;
+    private final ForkJoinPool buildPool;
+    private final CosineKernel cosineKernel;
+
+    public PropertyGraphBuilder(
+            @Value("${recommendation.graph.build-mode:FULL}") BuildMode buildMode,
+            @Value("${recommendation.graph.cell-size-degrees:0.05}") double cellSizeDegrees,
+            @Value("${recommendation.graph.max-neighbors:20}") int maxNeighbors,
+            @Value("${recommendation.graph.parallelism:0}") int parallelism) {
+
+        this.buildMode = buildMode;
+        this.cellSizeDegrees = cellSizeDegrees > 0 ? cellSizeDegrees : 0.05;
+        this.maxNeighbors = Math.max(maxNeighbors, 1);
+
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.buildPool = new ForkJoinPool(threads);
+        this.cosineKernel = CosineKernel.best();
+
+        System.out.println("✅ PropertyGraphBuilder: modo " + buildMode +
+                ", kernel de coseno " + cosineKernel.getName());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        buildPool.shutdownNow();
+    }
+
+    public BuildMode getBuildMode() {
+        return buildMode;
+    }
+
+    /**
+     * Configuración que determina qué aristas produce el builder
+     */
+    public String describeConfiguration() {
+        switch (buildMode) {
+            case BLOCKED:
+                return buildMode + ":" + cellSizeDegrees;
+            case KNN:
+                return buildMode + ":" + maxNeighbors;
+            default:
+                return buildMode.name();
+        }
+    }
+
+    /**
+     * Calcula las aristas con similitud mayor al umbral según el modo configurado
+     * Reporta el avance en progress (pares evaluados, aristas encontradas)
+     */
+    public Result build(List<PropertyFeatures> properties, double threshold, BuildProgress progress) {
+        if (buildMode == BuildMode.BLOCKED) {
+            return buildBlocked(properties, threshold, progress);
+        }
+        if (buildMode == BuildMode.KNN) {
+            return buildKnn(properties, threshold, progress);
+        }
+        return buildFull(properties, threshold, progress);
+    }
+
+    /**
+     * Aristas de una propiedad del snapshot contra todas las demás, con la misma
+     * selección que usa la construcción completa en el modo configurado:
+     *  - FULL: todas las que superan el umbral
+     *  - BLOCKED: solo las de la misma ciudad y su celda o las vecinas
+     *  - KNN: su top-K más las propiedades en cuyo top-K actual entraría
+     *    (similitud mayor a su K-ésimo vecino en el grafo, o fila con menos de K)
+     * Se usa en las actualizaciones incrementales; con KNN el grafo debe recortar
+     * las filas a rowLimit() al insertar (PropertyGraph.replaceEdges)
+     */
+    public Map<Long, Double> selectNodeEdges(PropertyCatalogSnapshot catalog, int index, double threshold,
+                                             PropertyGraph graph) {
+        PropertyFeatures target = catalog.getFeatures(index);
+        long targetCell = cellOf(target);
+        TopKSelector top = buildMode == BuildMode.KNN ? new TopKSelector(maxNeighbors, catalog.size()) : null;
+        Map<Long, Double> edges = new HashMap<>();
+
+        // Cosenos con el mismo kernel y los mismos vectores float que la construcción completa,
+        // así una arista incremental tiene el mismo peso que tendría tras un rebuild
+        FeatureMatrix matrix = catalog.getFeatureMatrix();
+        float[] query = new float[matrix.getDimensions()];
+        float[] cosines = new float[catalog.size()];
+        matrix.copyRow(index, query);
+        cosineKernel.similarities(query, matrix, 0, catalog.size(), cosines);
+
+        for (int j = 0; j < catalog.size(); j++) {
+            if (j == index) {
+                continue;
+            }
+            PropertyFeatures other = catalog.getFeatures(j);
+            if (buildMode == BuildMode.BLOCKED && !sameOrAdjacentBlock(target, targetCell, other)) {
+                continue;
+            }
+
+            double similarity = PropertyGraph.calculateSimilarity(target, other, cosines[j]);
+            if (similarity <= threshold) {
+                continue;
+            }
+
+            if (top == null) {
+                edges.put(other.getId(), similarity);
+            } else {
+                top.offer(similarity, j);
+                if (similarity > graph.neighborSimilarityAtRank(other.getId(), maxNeighbors - 1)) {
+                    edges.put(other.getId(), similarity);
+                }
+            }
+        }
+
+        if (top != null) {
+            top.sortDescending();
+            for (int rank = 0; rank < top.size(); rank++) {
+                edges.put(catalog.getId(top.indexAt(rank)), top.scoreAt(rank));
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * Largo máximo de fila que el modo mantiene en los cambios incrementales (0 = sin límite)
+     */
+    public int rowLimit() {
+        return buildMode == BuildMode.KNN ? maxNeighbors : 0;
+    }
+
+    /**
+     * Mismo criterio que buildBlocked: misma ciudad y misma celda o vecina
+     * (sin coordenadas se compara con todas las celdas de la ciudad)
+     */
+    private boolean sameOrAdjacentBlock(PropertyFeatures target, long targetCell, PropertyFeatures other) {
+        if (target.getCityId() != other.getCityId()) {
+            return false;
+        }
+        long otherCell = cellOf(other);
+        if (targetCell == NO_CELL || otherCell == NO_CELL) {
+            return true;
+        }
+        return Math.abs((int) (targetCell >> 32) - (int) (otherCell >> 32)) <= 1 &&
+                Math.abs((int) targetCell - (int) otherCell) <= 1;
+    }
+
+    private Result buildFull(List<PropertyFeatures> properties, double threshold, BuildProgress progress) {
+        Rows rows = new Rows(properties, progress);
+        EdgeBuffer edges = new EdgeBuffer();
+
+        for (int i = 0; i < properties.size(); i++) {
+            rows.compareRange(i, i + 1, properties.size(), threshold, edges);
+        }
+
+        return new Result(BuildMode.FULL, 1, edges);
+    }
+
+    private Result buildBlocked(List<PropertyFeatures> properties, double threshold, BuildProgress progress) {
+        // 1. Particionar: ciudad -> celda -> propiedades
+        Map<Integer, Map<Long, List<PropertyFeatures>>> cities = new HashMap<>();
+        for (PropertyFeatures property : properties) {
+            cities.computeIfAbsent(property.getCityId(), id -> new HashMap<>())
+                    .computeIfAbsent(cellOf(property), cell -> new ArrayList<>())
+                    .add(property);
+        }
+
+        // 2. Reordenar para que cada bloque sea un rango contiguo de filas
+        List<PropertyFeatures> ordered = new ArrayList<>(properties.size());
+        List<Block> blocks = new ArrayList<>();
+
+        for (Map<Long, List<PropertyFeatures>> cells : cities.values()) {
+            Map<Long, Block> cityBlocks = new HashMap<>();
+            for (Map.Entry<Long, List<PropertyFeatures>> cell : cells.entrySet()) {
+                int start = ordered.size();
+                ordered.addAll(cell.getValue());
+                Block block = new Block(cell.getKey(), start, ordered.size(), cityBlocks);
+                cityBlocks.put(cell.getKey(), block);
+                blocks.add(block);
+            }
+        }
+
+        // 3. Procesar los bloques en paralelo y unir las aristas
+        Rows rows = new Rows(ordered, progress);
+        EdgeBuffer edges = blocks.isEmpty()
+                ? new EdgeBuffer()
+                : buildPool.invoke(new BlockTask(rows, blocks, 0, blocks.size(), threshold));
+
+        return new Result(BuildMode.BLOCKED, blocks.size(), edges);
+    }
+
+    private Result buildKnn(List<PropertyFeatures> properties, double threshold, BuildProgress progress) {
+        int n = properties.size();
+        TopKSelector[] selectors = new TopKSelector[n];
+        EdgeBuffer edges = new EdgeBuffer();
+
+        // 1. Top-K de cada nodo en paralelo: cada tarea es dueña de sus filas
+        if (n > 0) {
+            Rows rows = new Rows(properties, progress);
+            edges.comparisons = buildPool.invoke(new KnnRowTask(rows, selectors, 0, n, threshold));
+        }
+
+        // 2. Unir las filas: cada par se emite una sola vez aunque esté en ambos top-K
+        int[][] members = new int[n][];
+        for (int i = 0; i < n; i++) {
+            selectors[i].sortDescending();
+            members[i] = new int[selectors[i].size()];
+            for (int rank = 0; rank < selectors[i].size(); rank++) {
+                members[i][rank] = selectors[i].indexAt(rank);
+            }
+            Arrays.sort(members[i]);
+        }
+
+        for (int i = 0; i < n; i++) {
+            for (int rank = 0; rank < selectors[i].size(); rank++) {
+                int j = selectors[i].indexAt(rank);
+                if (j < i && Arrays.binarySearch(members[j], i) >= 0) {
+                    continue; // ya emitido desde la fila j
+                }
+                edges.add(properties.get(i).getId(), properties.get(j).getId(), selectors[i].scoreAt(rank));
+            }
+        }
+        progress.onProgress(0, edges.size());
+
+        return new Result(BuildMode.KNN, 1, edges);
+    }
+
+    /**
+     * Propiedades y sus vectores normalizados en el mismo orden de filas
+     * Cada hilo usa su propio Scratch, así el kernel no crea objetos por par
+     * (uno por hilo del pool durante toda la construcción, no uno por bloque:
+     * con muchos bloques pequeños serían O(bloques · n) floats)
+     */
+    private final class Rows {
+
+        private final List<PropertyFeatures> properties;
+        private final FeatureMatrix features;
+        private final BuildProgress progress;
+        private final Map<Thread, Scratch> workerScratch = new ConcurrentHashMap<>();
+
+        private Rows(List<PropertyFeatures> properties, BuildProgress progress) {
+            this.properties = properties;
+            this.progress = progress;
+            this.features = new FeatureMatrix(SimilarityCalculator.FEATURE_DIMENSIONS, properties.size());
+            for (int i = 0; i < properties.size(); i++) {
+                features.setRow(i, properties.get(i).getUnitVector());
+            }
+        }
+
+        /**
+         * Scratch del hilo actual; una tarea hoja no hace fork/join mientras lo usa,
+         * así que ningún otro trabajo del mismo hilo lo pisa
+         */
+        private Scratch workerScratch() {
+            return workerScratch.computeIfAbsent(Thread.currentThread(),
+                    thread -> new Scratch(features.getDimensions(), properties.size()));
+        }
+
+        /**
+         * Scratch para KNN: solo necesita espacio para una tanda de candidatos
+         */
+        private Scratch newBatchScratch() {
+            return new Scratch(features.getDimensions(), KNN_BATCH);
+        }
+
+        /**
+         * Cosenos de la fila i contra [from, to) en scratch.cosines
+         */
+        private void cosines(int i, int from, int to, Scratch scratch) {
+            features.copyRow(i, scratch.query);
+            cosineKernel.similarities(scratch.query, features, from, to, scratch.cosines);
+        }
+
+        /**
+         * Cosenos de la fila i contra scratch.candidates[0, count) en scratch.cosines[0, count)
+         * (la consulta ya está en scratch.query)
+         */
+        private void candidateCosines(int count, Scratch scratch) {
+            cosineKernel.similarities(scratch.query, features, scratch.candidates, count, scratch.cosines);
+        }
+
+        /**
+         * Compara la fila i con las filas [from, to) y agrega las aristas que superan el umbral
+         */
+        private void compareRange(int i, int from, int to, double threshold, EdgeBuffer edges) {
+            if (from >= to) {
+                return;
+            }
+            checkCancelled();
+            Scratch scratch = workerScratch();
+            cosines(i, from, to, scratch);
+
+            int edgesBefore = edges.size;
+            PropertyFeatures base = properties.get(i);
+            for (int j = from; j < to; j++) {
+                edges.compare(base, properties.get(j), scratch.cosines[j], threshold);
+            }
+            progress.onProgress(to - from, edges.size - edgesBefore);
+        }
+
+        private void checkCancelled() {
+            if (progress.isCancelled()) {
+                throw new CancellationException("Construcción del grafo cancelada");
+            }
+        }
+    }
+
+    private static final class Scratch {
+
+        private final float[] query;
+        private final float[] cosines;
+        private final int[] candidates;
+        private final double[] bounds;
+
+        private Scratch(int dimensions, int rows) {
+            this.query = new float[dimensions];
+            this.cosines = new float[rows];
+            this.candidates = new int[Math.min(rows, KNN_BATCH)];
+            this.bounds = new double[candidates.length];
+        }
+    }
+
+    /**
+     * Recorre las filas [from, to): compara el nodo con todos los demás, pero solo
+     * calcula el coseno y la similitud completa si la cota superior puede entrar en su top-K
+     * Retorna el número de similitudes completas calculadas
+     */
+    private final class KnnRowTask extends RecursiveTask<Long> {
+
+        private static final int ROWS_PER_TASK = 64;
+
+        private final Rows rows;
+        private final TopKSelector[] selectors;
+        private final int from;
+        private final int to;
+        private final double threshold;
+
+        private KnnRowTask(Rows rows, TopKSelector[] selectors, int from, int to, double threshold) {
+            this.rows = rows;
+            this.selectors = selectors;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from <= ROWS_PER_TASK) {
+                Scratch scratch = rows.newBatchScratch();
+                long comparisons = 0;
+                for (int i = from; i < to; i++) {
+                    comparisons += computeRow(i, scratch);
+                }
+                return comparisons;
+            }
+
+            int middle = (from + to) >>> 1;
+            KnnRowTask left = new KnnRowTask(rows, selectors, from, middle, threshold);
+            KnnRowTask right = new KnnRowTask(rows, selectors, middle, to, threshold);
+
+            left.fork();
+            long comparisons = right.compute();
+            return comparisons + left.join();
+        }
+
+        private long computeRow(int i, Scratch scratch) {
+            List<PropertyFeatures> properties = rows.properties;
+            PropertyFeatures base = properties.get(i);
+            TopKSelector top = new TopKSelector(maxNeighbors, properties.size() - 1);
+            long comparisons = 0;
+            rows.checkCancelled();
+            rows.features.copyRow(i, scratch.query);
+
+            for (int from = 0; from < properties.size(); from += KNN_BATCH) {
+                int to = Math.min(properties.size(), from + KNN_BATCH);
+
+                // 1. Poda con la cota (precio y ubicación exactos): sin coseno ni Jaccard
+                //    Ni con amenities y coseno perfectos alcanzaría el K-ésimo actual
+                double bound = Math.max(threshold, top.threshold());
+                int count = 0;
+                for (int j = from; j < to; j++) {
+                    if (j == i) {
+                        continue;
+                    }
+                    double upperBound = PropertyGraph.calculateSimilarityUpperBound(base, properties.get(j));
+                    if (upperBound + BOUND_EPSILON >= bound) {
+                        scratch.candidates[count] = j;
+                        scratch.bounds[count++] = upperBound;
+                    }
+                }
+                if (count == 0) {
+                    continue;
+                }
+
+                // 2. Coseno solo de los candidatos que sobrevivieron, en una pasada del kernel
+                rows.candidateCosines(count, scratch);
+
+                for (int k = 0; k < count; k++) {
+                    // El K-ésimo pudo subir dentro de la tanda: se vuelve a podar
+                    if (scratch.bounds[k] + BOUND_EPSILON < Math.max(threshold, top.threshold())) {
+                        continue;
+                    }
+                    int j = scratch.candidates[k];
+                    double similarity = PropertyGraph.calculateSimilarity(base, properties.get(j), scratch.cosines[k]);
+                    comparisons++;
+                    if (similarity > threshold) {
+                        top.offer(similarity, j);
+                    }
+                }
+            }
+
+            selectors[i] = top;
+            rows.progress.onProgress(properties.size() - 1, 0);
+            return comparisons;
+        }
+    }
+
+    /**
+     * Celda geográfica (lat, lon) codificada en un long
+     */
+    private long cellOf(PropertyFeatures property) {
+        if (!property.hasCoordinates()) {
+            return NO_CELL;
+        }
+        int latCell = (int) Math.floor(property.getLatitude() / cellSizeDegrees);
+        int lonCell = (int) Math.floor(property.getLongitude() / cellSizeDegrees);
+        return cellKey(latCell, lonCell);
+    }
+
+    private static long cellKey(int latCell, int lonCell) {
+        return ((long) latCell << 32) | (lonCell & 0xffffffffL);
+    }
+
+    /**
+     * Compara un bloque consigo mismo y con sus vecinos
+     * Cada par de bloques se procesa una sola vez (el vecino con clave mayor)
+     */
+    private static void compareBlock(Rows rows, Block block, double threshold, EdgeBuffer edges) {
+        for (int i = block.start; i < block.end; i++) {
+            rows.compareRange(i, i + 1, block.end, threshold, edges);
+        }
+
+        if (block.cell == NO_CELL) {
+            // Sin coordenadas: vecino de todas las celdas de la ciudad
+            for (Block other : block.cityBlocks.values()) {
+                if (other.cell != NO_CELL) {
+                    compareAcross(rows, block, other, threshold, edges);
+                }
+            }
+            return;
+        }
+
+        int latCell = (int) (block.cell >> 32);
+        int lonCell = (int) block.cell;
+
+        for (int dLat = -1; dLat <= 1; dLat++) {
+            for (int dLon = -1; dLon <= 1; dLon++) {
+                long neighborCell = cellKey(latCell + dLat, lonCell + dLon);
+                if (neighborCell <= block.cell) {
+                    continue;
+                }
+                Block neighbor = block.cityBlocks.get(neighborCell);
+                if (neighbor != null) {
+                    compareAcross(rows, block, neighbor, threshold, edges);
+                }
+            }
+        }
+    }
+
+    private static void compareAcross(Rows rows, Block left, Block right, double threshold, EdgeBuffer edges) {
+        for (int i = left.start; i < left.end; i++) {
+            rows.compareRange(i, right.start, right.end, threshold, edges);
+        }
+    }
+
+    /**
+     * Bloque = rango contiguo [start, end) de filas de una misma ciudad y celda
+     */
+    private static final class Block {
+
+        private final long cell;
+        private final int start;
+        private final int end;
+        private final Map<Long, Block> cityBlocks;
+
+        private Block(long cell, int start, int end, Map<Long, Block> cityBlocks) {
+            this.cell = cell;
+            this.start = start;
+            this.end = end;
+            this.cityBlocks = cityBlocks;
+        }
+    }
+
+    /**
+     * Divide la lista de bloques en mitades hasta llegar a un bloque por tarea
+     * El work-stealing del pool compensa los bloques de tamaño desigual
+     */
+    private static final class BlockTask extends RecursiveTask<EdgeBuffer> {
+
+        private final Rows rows;
+        private final List<Block> blocks;
+        private final int from;
+        private final int to;
+        private final double threshold;
+
+        private BlockTask(Rows rows, List<Block> blocks, int from, int to, double threshold) {
+            this.rows = rows;
+            this.blocks = blocks;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected EdgeBuffer compute() {
+            if (to - from == 1) {
+                EdgeBuffer edges = new EdgeBuffer();
+                compareBlock(rows, blocks.get(from), threshold, edges);
+                return edges;
+            }
+
+            int middle = (from + to) >>> 1;
+            BlockTask left = new BlockTask(rows, blocks, from, middle, threshold);
+            BlockTask right = new BlockTask(rows, blocks, middle, to, threshold);
+
+            left.fork();
+            EdgeBuffer result = right.compute();
+            result.addAll(left.join());
+            return result;
+        }
+    }
+
+    /**
+     * Aristas en arreglos primitivos crecientes (sin un objeto por arista)
+     */
+    public static final class EdgeBuffer {
+
+        private long[] sources = new long[64];
+        private long[] targets = new long[64];
+        private double[] weights = new double[64];
+        private int size;
+        private long comparisons;
+
+        private void compare(PropertyFeatures p1, PropertyFeatures p2, double cosine, double threshold) {
+            double similarity = PropertyGraph.calculateSimilarity(p1, p2, cosine);
+            comparisons++;
+
+            if (similarity > threshold) {
+                add(p1.getId(), p2.getId(), similarity);
+            }
+        }
+
+        private void add(long source, long target, double weight) {
+            if (size == sources.length) {
+                int capacity = size * 2;
+                sources = Arrays.copyOf(sources, capacity);
+                targets = Arrays.copyOf(targets, capacity);
+                weights = Arrays.copyOf(weights, capacity);
+            }
+            sources[size] = source;
+            targets[size] = target;
+            weights[size] = weight;
+            size++;
+        }
+
+        private void addAll(EdgeBuffer other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.sources[i], other.targets[i], other.weights[i]);
+            }
+            comparisons += other.comparisons;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public long getSource(int i) {
+            return sources[i];
+        }
+
+        public long getTarget(int i) {
+            return targets[i];
+        }
+
+        public double getWeight(int i) {
+            return weights[i];
+        }
+    }
+
+    /**
+     * Resultado de una construcción: aristas y estadísticas
+     */
+    public static final class Result {
+
+        private final BuildMode mode;
+        private final int blocks;
+        private final EdgeBuffer edges;
+
+        private Result(BuildMode mode, int blocks, EdgeBuffer edges) {
+            this.mode = mode;
+            this.blocks = blocks;
+            this.edges = edges;
+        }
+
+        public BuildMode getMode() {
+            return mode;
+        }
+
+        public int getBlocks() {
+            return blocks;
+        }
+
+        public EdgeBuffer getEdges() {
+            return edges;
+        }
+
+        public long getComparisons() {
+            return edges.comparisons;
+        }
+    }
+}
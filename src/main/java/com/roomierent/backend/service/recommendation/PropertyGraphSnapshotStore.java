@@ -0,0 +1,141 @@
+package com.roomierent.backend.service.recommendation;
+
+import com.roomierent.backend.util.datastructures.CsrGraphFile;
+import com.roomierent.backend.util.datastructures.CsrSimilarityGraph;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Guarda el grafo de similitud en un archivo local para no reconstruirlo al reiniciar
+ *
+ * El archivo lleva la huella de la configuración del grafo y la del snapshot de catálogo
+ * con el que se calculó (la que guarda el CsrSimilarityGraph, tomada de la entrada del
+ * builder). Ninguna de las dos consulta la base: al cargar se comparan con la
+ * configuración actual y con la huella del snapshot ya cargado
+ *
+ * Con varias instancias el archivo solo sirve para publicar el grafo si la ruta es
+ * compartida (snapshot-shared); si es local, cada instancia lo usa solo al reiniciar
+ */
+@Component
+public class PropertyGraphSnapshotStore {
+
+    private final PropertyGraphBuilder graphBuilder;
+    private final Path snapshotPath;
+    private final boolean shared;
+
+    public PropertyGraphSnapshotStore(
+            PropertyGraphBuilder graphBuilder,
+            @Value("${recommendation.graph.snapshot-path:}") String snapshotPath,
+            @Value("${recommendation.graph.snapshot-shared:false}") boolean shared) {
+
+        this.graphBuilder = graphBuilder;
+        this.snapshotPath = snapshotPath == null || snapshotPath.isBlank() ? null : Paths.get(snapshotPath);
+        this.shared = shared;
+    }
+
+    public boolean isEnabled() {
+        return snapshotPath != null;
+    }
+
+    /**
+     * Indica si todas las instancias ven el mismo archivo (volumen compartido)
+     */
+    public boolean isShared() {
+        return snapshotPath != null && shared;
+    }
+
+    /**
+     * Carga el grafo guardado si se calculó sobre este snapshot del catálogo
+     * (null si no hay, está viejo o se generó con otra configuración)
+     */
+    public CsrSimilarityGraph load(double edgeThreshold, long catalogFingerprint) {
+        CsrSimilarityGraph graph = read(edgeThreshold);
+        if (graph != null && graph.getCatalogFingerprint() != catalogFingerprint) {
+            System.out.println("ℹ️ Snapshot de grafo de otro catálogo, se descarta: " + snapshotPath);
+            return null;
+        }
+        return graph;
+    }
+
+    /**
+     * Carga el grafo publicado por la instancia líder sin importar el catálogo con el que
+     * se calculó: el llamador compara getCatalogFingerprint con su propio snapshot
+     * Retorna null si la ruta no es compartida (el archivo local no es el del líder)
+     */
+    public CsrSimilarityGraph loadPublished(double edgeThreshold) {
+        return isShared() ? read(edgeThreshold) : null;
+    }
+
+    private CsrSimilarityGraph read(double edgeThreshold) {
+        if (snapshotPath == null) {
+            return null;
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            CsrSimilarityGraph graph = CsrGraphFile.read(snapshotPath, configFingerprint(edgeThreshold));
+
+            if (graph == null) {
+                System.out.println("ℹ️ Snapshot de grafo ausente o de otra configuración: " + snapshotPath);
+                return null;
+            }
+
+            System.out.println("💾 Grafo cargado desde " + snapshotPath + ": " + graph.nodeCount() +
+                    " nodos, " + graph.edgeCount() + " aristas en " +
+                    (System.currentTimeMillis() - start) + " ms");
+            return graph;
+
+        } catch (IOException e) {
+            System.err.println("❌ Snapshot de grafo inválido, se descarta: " + e.getMessage());
+            deleteQuietly();
+            return null;
+        }
+    }
+
+    /**
+     * Guarda el grafo con la huella de catálogo que lleva (los errores solo se registran)
+     */
+    public void save(CsrSimilarityGraph graph, double edgeThreshold) {
+        if (snapshotPath == null) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            CsrGraphFile.write(snapshotPath, graph, configFingerprint(edgeThreshold));
+            System.out.println("💾 Grafo guardado en " + snapshotPath + " (" +
+                    Files.size(snapshotPath) / 1024 + " KB en " +
+                    (System.currentTimeMillis() - start) + " ms)");
+        } catch (IOException e) {
+            System.err.println("❌ Error guardando snapshot de grafo: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Huella de 64 bits de la configuración del grafo (umbral, modo de construcción, etc.)
+     */
+    private long configFingerprint(double edgeThreshold) {
+        long hash = mix(Double.doubleToLongBits(edgeThreshold));
+        return mix(hash ^ graphBuilder.describeConfiguration().hashCode());
+    }
+
+    // Mezcla de bits (finalizador de SplitMix64)
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+
+    private void deleteQuietly() {
+        try {
+            Files.deleteIfExists(snapshotPath);
+        } catch (IOException ignored) {
+            // Se sobrescribe en la próxima construcción
+        }
+    }
+}
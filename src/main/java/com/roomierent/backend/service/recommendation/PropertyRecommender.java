@@ -1,8 +1,10 @@
 package com.roomierent.backend.service.recommendation;
 
 import com.roomierent.backend.model.entity.Property;
-import com.roomierent.backend.model.entity.UserPreferences;
+import com.roomierent.backend.util.datastructures.PropertyCatalogSnapshot;
+import com.roomierent.backend.util.datastructures.TopKSelector;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public interface PropertyRecommender {
@@ -11,14 +13,46 @@ public interface PropertyRecommender {
      * Recomienda propiedades basándose en las preferencias del usuario
      *
      * @param availableProperties Lista de propiedades disponibles
-     * @param preferences Preferencias del usuario
+     * @param preferences Preferencias compiladas del usuario
      * @param limit Número máximo de recomendaciones
      * @return Lista ordenada de propiedades recomendadas
      */
     List<Property> recommend(List<Property> availableProperties,
-                             UserPreferences preferences,
+                             CompiledPreferences preferences,
                              int limit);
 
+    /**
+     * Selecciona las k mejores filas del snapshot con un heap acotado (O(n log k))
+     *
+     * @param snapshot Snapshot en memoria de las propiedades disponibles
+     * @param preferences Preferencias compiladas del usuario
+     * @param k Número máximo de filas a seleccionar
+     * @return Selector ya ordenado de mejor a peor (índices de fila del snapshot)
+     */
+    TopKSelector selectTopK(PropertyCatalogSnapshot snapshot,
+                            CompiledPreferences preferences,
+                            int k);
+
+    /**
+     * Recomienda propiedades evaluando el snapshot columnar del catálogo
+     *
+     * @param snapshot Snapshot en memoria de las propiedades disponibles
+     * @param preferences Preferencias compiladas del usuario
+     * @param limit Número máximo de recomendaciones
+     * @return IDs de las propiedades recomendadas, de mejor a peor
+     */
+    default List<Long> recommendIds(PropertyCatalogSnapshot snapshot,
+                                    CompiledPreferences preferences,
+                                    int limit) {
+        TopKSelector top = selectTopK(snapshot, preferences, limit);
+
+        List<Long> ids = new ArrayList<>(top.size());
+        for (int rank = 0; rank < top.size(); rank++) {
+            ids.add(snapshot.getId(top.indexAt(rank)));
+        }
+        return ids;
+    }
+
     /**
      * Nombre de la estrategia
      */
@@ -0,0 +1,159 @@
+package com.roomierent.backend.service.recommendation;
+
+import com.roomierent.backend.model.entity.PropertySimilarity;
+import com.roomierent.backend.repository.PropertySimilarityRepository;
+import com.roomierent.backend.util.datastructures.CsrSimilarityGraph;
+import com.roomierent.backend.util.datastructures.PropertyGraph;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Publica el top-K de vecinos de cada propiedad en la tabla property_similarity
+ * Todo se reemplaza en una sola transacción: las demás instancias siguen leyendo
+ * los vecinos anteriores hasta el commit
+ */
+@Service
+public class PropertySimilarityTableWriter {
+
+    // Cada cuántas filas se envía el lote a la base de datos y se limpia el contexto
+    private static final int BATCH_SIZE = 500;
+
+    private final PropertySimilarityRepository similarityRepository;
+    private final EntityManager entityManager;
+    private final boolean enabled;
+    private final int topK;
+
+    public PropertySimilarityTableWriter(
+            PropertySimilarityRepository similarityRepository,
+            EntityManager entityManager,
+            @Value("${recommendation.similar.table.enabled:false}") boolean enabled,
+            @Value("${recommendation.similar.table.top-k:20}") int topK) {
+
+        this.similarityRepository = similarityRepository;
+        this.entityManager = entityManager;
+        this.enabled = enabled;
+        this.topK = Math.max(topK, 1);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Reemplaza toda la tabla con el top-K de cada nodo del grafo
+     */
+    @Transactional
+    public void replaceAll(CsrSimilarityGraph graph) {
+        if (!enabled) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        similarityRepository.deleteAllRows();
+
+        int rows = 0;
+        for (int node = 0; node < graph.nodeCount(); node++) {
+            rows = writeRows(graph, node, rows);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        System.out.println("🗄️ Tabla property_similarity publicada: " + rows + " filas en " +
+                (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Reescribe solo las filas de las propiedades indicadas (cambios incrementales)
+     * Lee las filas del grafo vivo, con sus cambios incrementales, sin compactarlo.
+     * Las que ya no están en el grafo quedan sin vecinos
+     */
+    @Transactional
+    public void replaceRows(PropertyGraph graph, Collection<Long> propertyIds) {
+        if (!enabled || propertyIds.isEmpty()) {
+            return;
+        }
+
+        similarityRepository.deleteByPropertyIds(propertyIds);
+
+        int rows = 0;
+        for (Long propertyId : propertyIds) {
+            List<Map.Entry<Long, Double>> neighbors = graph.getNeighborsSorted(propertyId);
+            int end = Math.min(neighbors.size(), topK);
+
+            for (int rank = 0; rank < end; rank++) {
+                rows = persist(propertyId, neighbors.get(rank).getKey(), rank, neighbors.get(rank).getValue(), rows);
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    /**
+     * Arma un grafo con las filas publicadas (lo usan las instancias que no construyeron)
+     * Cada par puede estar en ambas direcciones: se agrega una sola vez
+     */
+    @Transactional(readOnly = true)
+    public CsrSimilarityGraph readAll() {
+        List<Object[]> rows = similarityRepository.findAllEdges();
+        CsrSimilarityGraph.Builder builder = CsrSimilarityGraph.builder();
+        Set<Long> nodes = new HashSet<>();
+        Set<Edge> edges = new HashSet<>(rows.size() * 2);
+
+        for (Object[] row : rows) {
+            long propertyId = (Long) row[0];
+            long neighborId = (Long) row[1];
+
+            if (nodes.add(propertyId)) {
+                builder.addNode(propertyId);
+            }
+            if (nodes.add(neighborId)) {
+                builder.addNode(neighborId);
+            }
+            if (edges.add(new Edge(Math.min(propertyId, neighborId), Math.max(propertyId, neighborId)))) {
+                builder.addEdge(propertyId, neighborId, (Double) row[2]);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Inserta los primeros K vecinos del nodo (las filas del CSR ya están ordenadas)
+     */
+    private int writeRows(CsrSimilarityGraph graph, int node, int rowsWritten) {
+        long propertyId = graph.idAt(node);
+        int start = graph.rowStart(node);
+        int end = Math.min(graph.rowEnd(node), start + topK);
+
+        for (int position = start; position < end; position++) {
+            rowsWritten = persist(propertyId, graph.neighborIdAt(position), position - start,
+                    graph.weightAt(position), rowsWritten);
+        }
+        return rowsWritten;
+    }
+
+    private int persist(long propertyId, long neighborId, int rank, double score, int rowsWritten) {
+        entityManager.persist(PropertySimilarity.builder()
+                .propertyId(propertyId)
+                .neighborId(neighborId)
+                .rank(rank)
+                .score(score)
+                .build());
+
+        if (++rowsWritten % BATCH_SIZE == 0) {
+            entityManager.flush();
+            entityManager.clear();
+        }
+        return rowsWritten;
+    }
+
+    private record Edge(long low, long high) {
+    }
+}
@@ -0,0 +1,176 @@
+package com.roomierent.backend.service.recommendation;
+
+import com.roomierent.backend.event.CatalogSnapshotRefreshedEvent;
+import com.roomierent.backend.event.PropertyChangedEvent;
+import com.roomierent.backend.model.entity.PropertyType;
+import com.roomierent.backend.repository.PropertyRepository;
+import com.roomierent.backend.util.datastructures.PropertyCatalogSnapshot;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mantiene en memoria el snapshot columnar del catálogo disponible
+ * Se refresca en segundo plano cada vez que una propiedad cambia
+ *
+ * Los eventos solo llegan a la instancia que hizo el cambio: las demás lo detectan
+ * comparando periódicamente una marca del catálogo calculada en la base sobre las
+ * columnas de scoring (ver checkForChanges) con la del snapshot cargado
+ *
+ * Si un refresco produce la misma huella que el snapshot actual (solo cambiaron vistas,
+ * favoritos u otras columnas que no usa el scoring) se conserva el snapshot y su versión:
+ * las cachés que dependen de la versión siguen siendo válidas
+ */
+@Service
+public class PropertySnapshotService {
+
+    private final PropertyRepository propertyRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ExecutorService refreshExecutor;
+    private final AtomicBoolean refreshPending = new AtomicBoolean(false);
+    private final AtomicLong versionSequence = new AtomicLong();
+
+    private volatile PropertyCatalogSnapshot snapshot;
+    // Marca del catálogo leída justo antes de armar el snapshot actual
+    private volatile List<Object> snapshotMarker;
+
+    public PropertySnapshotService(PropertyRepository propertyRepository,
+                                   ApplicationEventPublisher eventPublisher) {
+        this.propertyRepository = propertyRepository;
+        this.eventPublisher = eventPublisher;
+        this.refreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "property-snapshot-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Retorna el snapshot actual (lo carga la primera vez si aún no existe)
+     */
+    public PropertyCatalogSnapshot getSnapshot() {
+        PropertyCatalogSnapshot current = snapshot;
+        if (current == null) {
+            current = loadIfAbsent();
+        }
+        return current;
+    }
+
+    /**
+     * Retorna el snapshot actual sin bloquear (null si todavía no se ha cargado)
+     */
+    public PropertyCatalogSnapshot getLoadedSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Recarga el snapshot desde la base de datos y lo publica
+     */
+    public synchronized PropertyCatalogSnapshot refresh() {
+        long start = System.currentTimeMillis();
+
+        // Se lee antes del escaneo: un cambio entre ambos causa a lo sumo un refresco de más
+        List<Object> marker = changeMarker();
+        List<Object[]> rows = propertyRepository.findAvailableScoringColumns();
+        PropertyCatalogSnapshot.Builder builder =
+                PropertyCatalogSnapshot.builder(versionSequence.incrementAndGet(), rows.size());
+
+        for (Object[] row : rows) {
+            builder.add(
+                    (Long) row[0],
+                    (BigDecimal) row[1],
+                    (Integer) row[2],
+                    (Integer) row[3],
+                    (Double) row[4],
+                    (Double) row[5],
+                    (Double) row[6],
+                    (PropertyType) row[7],
+                    (String) row[8],
+                    (String) row[9],
+                    (String) row[10]
+            );
+        }
+
+        PropertyCatalogSnapshot refreshed = builder.build();
+        this.snapshotMarker = marker;
+
+        PropertyCatalogSnapshot current = this.snapshot;
+        if (current != null && current.getFingerprint() == refreshed.getFingerprint()) {
+            System.out.println("📸 Snapshot de catálogo v" + current.getVersion() +
+                    " sin cambios de scoring, se conserva");
+            return current;
+        }
+        this.snapshot = refreshed;
+
+        System.out.println("📸 Snapshot de catálogo v" + refreshed.getVersion() + " cargado: " +
+                refreshed.size() + " propiedades en " + (System.currentTimeMillis() - start) + " ms");
+
+        eventPublisher.publishEvent(new CatalogSnapshotRefreshedEvent(refreshed.getVersion(), refreshed.size()));
+
+        return refreshed;
+    }
+
+    /**
+     * Programa un refresco en segundo plano (los cambios seguidos se agrupan)
+     */
+    public void requestRefresh() {
+        if (refreshPending.compareAndSet(false, true)) {
+            refreshExecutor.execute(() -> {
+                refreshPending.set(false);
+                try {
+                    refresh();
+                } catch (Exception e) {
+                    System.err.println("❌ Error refrescando snapshot de catálogo: " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * Refresca si el catálogo cambió desde el último snapshot (por ejemplo en otra instancia)
+     * Se llama periódicamente (RecommendationSyncScheduler); cuesta una consulta agregada
+     */
+    public void checkForChanges() {
+        if (snapshot == null || refreshPending.get()) {
+            return;
+        }
+        if (!changeMarker().equals(snapshotMarker)) {
+            requestRefresh();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        requestRefresh();
+    }
+
+    @TransactionalEventListener
+    public void onPropertyChanged(PropertyChangedEvent event) {
+        requestRefresh();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    private List<Object> changeMarker() {
+        List<Object[]> rows = propertyRepository.findChangeMarker();
+        return rows.isEmpty() ? List.of() : Arrays.asList(rows.get(0));
+    }
+
+    private synchronized PropertyCatalogSnapshot loadIfAbsent() {
+        return snapshot != null ? snapshot : refresh();
+    }
+}
@@ -1,17 +1,44 @@
 package com.roomierent.backend.service.recommendation;
 
+import com.roomierent.backend.event.CatalogSnapshotRefreshedEvent;
 import com.roomierent.backend.model.entity.Property;
 import com.roomierent.backend.model.entity.User;
 import com.roomierent.backend.model.entity.UserPreferences;
 import com.roomierent.backend.repository.PropertyRepository;
+import com.roomierent.backend.repository.PropertySimilarityRepository;
+import com.roomierent.backend.repository.PropertySpecifications;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.transaction.annotation.Transactional;
 import com.roomierent.backend.repository.UserPreferencesRepository;
 import com.roomierent.backend.repository.UserRepository;
+import com.roomierent.backend.util.datastructures.BoundedTtlCache;
+import com.roomierent.backend.util.datastructures.CsrSimilarityGraph;
+import com.roomierent.backend.util.datastructures.PropertyCatalogSnapshot;
+import com.roomierent.backend.util.datastructures.PropertyFeatures;
 import com.roomierent.backend.util.datastructures.PropertyGraph;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Manager principal del sistema de recomendaciones con IA
@@ -20,11 +47,54 @@ import java.util.List;
 @Service
 public class RecommendationManager {
 
+    // Similitud mínima para crear una arista en el grafo (20%)
+    private static final double EDGE_THRESHOLD = 0.2;
+
+    // Similitud mínima para mostrar una propiedad como similar (30%)
+    private static final double MIN_SIMILAR_SCORE = 0.3;
+
+    // Trabajos de construcción del grafo que se conservan para consultar su estado
+    private static final int MAX_TRACKED_BUILD_JOBS = 20;
+
     private final UserRepository userRepository;
     private final UserPreferencesRepository preferencesRepository;
     private final PropertyRepository propertyRepository;
     private final PropertyGraph propertyGraph;
+    private final PropertyGraphBuilder graphBuilder;
+    private final PropertyGraphSnapshotStore graphSnapshotStore;
+    private final SimilarPropertyIndex similarIndex;
+    private final PropertySimilarityRepository similarityRepository;
+    private final PropertySimilarityTableWriter similarityTableWriter;
+    private final GraphBuildLeaseService buildLease;
+    private final SimilarSource similarSource;
+    private final PropertySnapshotService snapshotService;
+    private final PreferencesVersionTracker preferencesVersions;
+    private final ColdStartRanking coldStartRanking;
+    private final BoundedTtlCache<ResultCacheKey, List<Long>> resultCache;
+    private final BoundedTtlCache<PreferencesKey, CompiledPreferences> compiledPreferencesCache;
+    private final BoundedTtlCache<SharedRankingKey, SharedRanking> sharedRankings;
     private final List<PropertyRecommender> strategies;
+    private final ExecutorService graphMaintenanceExecutor;
+    // Cargas en paralelo de getRecommendationsForUser (un hilo virtual por tarea)
+    private final ExecutorService loadExecutor;
+    private final boolean parallelLoad;
+    private final Object graphLock = new Object();
+    private final AtomicLong buildJobSequence = new AtomicLong();
+    private final Map<Long, GraphBuildJob> buildJobs = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, GraphBuildJob> eldest) {
+            return size() > MAX_TRACKED_BUILD_JOBS && !eldest.getValue().isActive();
+        }
+    };
+    private GraphBuildJob activeBuildJob;
+    // Generación del lease cuyo grafo ya tiene esta instancia
+    private volatile long loadedGeneration = -1;
+    // Snapshot de catálogo que refleja el grafo local (null si vino de disco o de otra instancia)
+    private volatile PropertyCatalogSnapshot graphCatalog;
+    // Filas con cambios incrementales que todavía no se escribieron en el snapshot ni en
+    // la tabla (protegidas por graphLock; se escriben en flushGraphChanges)
+    private final Set<Long> pendingGraphRows = new HashSet<>();
+    private volatile boolean graphChangesPending;
     private PropertyRecommender currentStrategy;
 
     public RecommendationManager(
@@ -32,16 +102,65 @@ public class RecommendationManager {
             UserPreferencesRepository preferencesRepository,
             PropertyRepository propertyRepository,
             PropertyGraph propertyGraph,
-            ScoreBasedPropertyRecommender scoreBasedStrategy) {
+            PropertyGraphBuilder graphBuilder,
+            PropertyGraphSnapshotStore graphSnapshotStore,
+            SimilarPropertyIndex similarIndex,
+            PropertySimilarityRepository similarityRepository,
+            PropertySimilarityTableWriter similarityTableWriter,
+            GraphBuildLeaseService buildLease,
+            PropertySnapshotService snapshotService,
+            PreferencesVersionTracker preferencesVersions,
+            ColdStartRanking coldStartRanking,
+            ScoreBasedPropertyRecommender scoreBasedStrategy,
+            ItemItemPropertyRecommender itemItemStrategy,
+            @Value("${recommendation.cache.max-size:10000}") int cacheMaxSize,
+            @Value("${recommendation.cache.ttl-seconds:600}") long cacheTtlSeconds,
+            @Value("${recommendation.preferences-cache.max-size:10000}") int preferencesCacheMaxSize,
+            @Value("${recommendation.preferences-cache.ttl-seconds:1800}") long preferencesCacheTtlSeconds,
+            @Value("${recommendation.shared-rankings.max-size:5000}") int sharedRankingsMaxSize,
+            @Value("${recommendation.shared-rankings.ttl-seconds:3600}") long sharedRankingsTtlSeconds,
+            @Value("${recommendation.similar.source:GRAPH}") String similarSource,
+            @Value("${recommendation.parallel-load.enabled:true}") boolean parallelLoad) {
 
         this.userRepository = userRepository;
         this.preferencesRepository = preferencesRepository;
         this.propertyRepository = propertyRepository;
         this.propertyGraph = propertyGraph;
+        this.graphBuilder = graphBuilder;
+        this.graphSnapshotStore = graphSnapshotStore;
+        this.similarIndex = similarIndex;
+        this.similarityRepository = similarityRepository;
+        this.similarityTableWriter = similarityTableWriter;
+        this.buildLease = buildLease;
+
+        // Con lease, las demás instancias necesitan un artefacto compartido para cargar el grafo del líder
+        if (buildLease.isEnabled() && !similarityTableWriter.isEnabled() && !graphSnapshotStore.isShared()) {
+            throw new RuntimeException("recommendation.graph.lease.enabled requiere " +
+                    "recommendation.similar.table.enabled=true o un snapshot en una ruta compartida " +
+                    "(recommendation.graph.snapshot-path con recommendation.graph.snapshot-shared=true)");
+        }
+        this.similarSource = SimilarSource.valueOf(similarSource.trim().toUpperCase(Locale.ROOT));
+        this.snapshotService = snapshotService;
+        this.preferencesVersions = preferencesVersions;
+        this.coldStartRanking = coldStartRanking;
+        this.resultCache = new BoundedTtlCache<>(cacheMaxSize, cacheTtlSeconds, TimeUnit.SECONDS);
+        this.compiledPreferencesCache = new BoundedTtlCache<>(
+                preferencesCacheMaxSize, preferencesCacheTtlSeconds, TimeUnit.SECONDS);
+        this.sharedRankings = new BoundedTtlCache<>(
+                sharedRankingsMaxSize, sharedRankingsTtlSeconds, TimeUnit.SECONDS);
+        this.graphMaintenanceExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "property-graph-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.loadExecutor = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("recommendation-load-", 0).factory());
+        this.parallelLoad = parallelLoad;
 
         // Registrar estrategias disponibles
         this.strategies = new ArrayList<>();
         this.strategies.add(scoreBasedStrategy);
+        this.strategies.add(itemItemStrategy);
 
         // Estrategia por defecto
         this.currentStrategy = scoreBasedStrategy;
@@ -52,25 +171,132 @@ public class RecommendationManager {
 
     /**
      * Obtiene recomendaciones personalizadas para un usuario
+     * No es @Transactional: una transacción externa retendría una conexión mientras las
+     * cargas en paralelo piden las suyas, y con un pool chico las peticiones se bloquean
      *
      * @param userEmail Email del usuario
      * @param limit Número máximo de recomendaciones
      * @return Lista de propiedades recomendadas
      */
-    @Transactional(readOnly = true)
     public List<Property> getRecommendationsForUser(String userEmail, int limit) {
         System.out.println("\n🎯 ============================================");
         System.out.println("   GENERANDO RECOMENDACIONES CON IA");
         System.out.println("   ============================================");
         System.out.println("   👤 Usuario: " + userEmail);
 
-        // 1. Buscar usuario
+        // 0. Caché por usuario: la clave incluye la versión de sus preferencias (leída antes
+        //    de cargarlas) y la versión del snapshot, así un cambio nunca sirve datos viejos
+        long preferencesVersion = preferencesVersions.getVersion(userEmail);
+        PropertyCatalogSnapshot snapshot = snapshotService.getLoadedSnapshot();
+        ResultCacheKey cacheKey = null;
+
+        if (snapshot != null) {
+            cacheKey = new ResultCacheKey(userEmail, preferencesVersion, snapshot.getVersion(), limit);
+            List<Long> cachedIds = resultCache.get(cacheKey);
+
+            if (cachedIds != null) {
+                System.out.println("   ⚡ Recomendaciones servidas desde caché (snapshot v" +
+                        snapshot.getVersion() + ")");
+                List<Property> cached = loadPropertiesInOrder(cachedIds);
+                System.out.println("   ✅ Recomendaciones generadas: " + cached.size());
+                System.out.println("   ============================================\n");
+                return cached;
+            }
+        }
+
+        // 1. Preferencias compiladas de esta versión: con snapshot no hace falta tocar la base
+        //    (el SQL de respaldo sí necesita la entidad)
+        PreferencesKey preferencesKey = new PreferencesKey(userEmail, preferencesVersion);
+        CompiledPreferences compiled = snapshot != null ? compiledPreferencesCache.get(preferencesKey) : null;
+        UserPreferences preferences = null;
+
+        if (compiled != null) {
+            System.out.println("   ⚡ Preferencias compiladas desde caché (versión " + preferencesVersion + ")");
+            CompiledPreferences current = compiled.withCurrentDictionary();
+            if (current != compiled) {
+                compiledPreferencesCache.put(preferencesKey, current);
+                compiled = current;
+            }
+        } else {
+            // 2. Buscar usuario y sus preferencias; sin snapshot, cargarlo al mismo tiempo
+            LoadedPreferences loaded;
+            if (snapshot == null && parallelLoad) {
+                ParallelLoad load = loadInParallel(userEmail);
+                loaded = load.preferences();
+                snapshot = load.snapshot();
+                cacheKey = new ResultCacheKey(userEmail, preferencesVersion, snapshot.getVersion(), limit);
+            } else {
+                loaded = loadPreferences(userEmail);
+            }
+
+            preferences = loaded.preferences();
+            compiled = loaded.stored()
+                    ? CompiledPreferences.compile(preferences)
+                    : CompiledPreferences.compileDefaults(preferences);
+            compiledPreferencesCache.put(preferencesKey, compiled);
+        }
+
+        // 3. Usar el snapshot en memoria de las propiedades disponibles
+        List<Property> recommendations;
+
+        if (snapshot != null) {
+            System.out.println("   📊 Propiedades disponibles: " + snapshot.size() +
+                    " (snapshot v" + snapshot.getVersion() + ")");
+            System.out.println("   🤖 Estrategia: " + currentStrategy.getStrategyName());
+
+            // Sin preferencias guardadas: el ranking por defecto es el mismo para todos
+            // (con filtrado colaborativo cada usuario puede tener sus favoritos)
+            if (compiled.isDefaults() && currentStrategy instanceof ScoreBasedPropertyRecommender) {
+                List<Long> coldStartIds = coldStartRanking.topIds(snapshot, limit);
+                if (coldStartIds != null) {
+                    System.out.println("   🧊 Ranking compartido para usuarios sin preferencias");
+                    recommendations = loadPropertiesInOrder(coldStartIds);
+                    System.out.println("   ✅ Recomendaciones generadas: " + recommendations.size());
+                    System.out.println("   ============================================\n");
+                    return recommendations;
+                }
+            }
+
+            // 4. Aplicar estrategia de recomendación (IA) sobre el snapshot
+            List<Long> recommendedIds = rankWithSharedMemo(snapshot, compiled, limit);
+
+            resultCache.put(cacheKey, List.copyOf(recommendedIds));
+
+            // 5. Cargar entidades solo para el top-N
+            recommendations = loadPropertiesInOrder(recommendedIds);
+        } else {
+            // Snapshot aún no cargado: filtrar en SQL y evaluar solo los sobrevivientes
+            snapshotService.requestRefresh();
+
+            List<Property> candidates = propertyRepository.findAll(
+                    PropertySpecifications.availableMatching(preferences)
+            );
+
+            System.out.println("   📊 Candidatas filtradas en base de datos: " + candidates.size());
+            System.out.println("   🤖 Estrategia: " + currentStrategy.getStrategyName());
+
+            recommendations = currentStrategy.recommend(
+                    candidates,
+                    compiled,
+                    limit
+            );
+        }
+
+        System.out.println("   ✅ Recomendaciones generadas: " + recommendations.size());
+        System.out.println("   ============================================\n");
+
+        return recommendations;
+    }
+
+    /**
+     * Busca el usuario y sus preferencias (o las de por defecto si no guardó ninguna)
+     */
+    private LoadedPreferences loadPreferences(String userEmail) {
         User user = userRepository.findByEmail(userEmail)
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
 
-        // 2. Buscar preferencias del usuario
-        UserPreferences preferences = preferencesRepository.findByUser(user)
-                .orElse(createDefaultPreferences(user));
+        Optional<UserPreferences> stored = preferencesRepository.findByUser(user);
+        UserPreferences preferences = stored.orElseGet(() -> createDefaultPreferences(user));
 
         System.out.println("   ⚙️  Preferencias cargadas:");
         System.out.println("      • Ciudad: " + preferences.getPreferredCity());
@@ -80,23 +306,49 @@ public class RecommendationManager {
                 ", Ubicación:" + preferences.getLocationWeight() +
                 ", Amenities:" + preferences.getAmenitiesWeight() + "]");
 
-        // 3. Obtener propiedades disponibles
-        List<Property> availableProperties = propertyRepository.findAvailablePropertiesWithOwner();
-
-        System.out.println("   📊 Propiedades disponibles: " + availableProperties.size());
-        System.out.println("   🤖 Estrategia: " + currentStrategy.getStrategyName());
-
-        // 4. Aplicar estrategia de recomendación (IA)
-        List<Property> recommendations = currentStrategy.recommend(
-                availableProperties,
-                preferences,
-                limit
-        );
+        return new LoadedPreferences(preferences, stored.isPresent());
+    }
 
-        System.out.println("   ✅ Recomendaciones generadas: " + recommendations.size());
-        System.out.println("   ============================================\n");
+    /**
+     * Carga en hilos virtuales, al mismo tiempo, el usuario con sus preferencias y el
+     * snapshot del catálogo; el scoring empieza cuando ambos terminan, así la latencia
+     * es max(cargas) en lugar de la suma. Si una falla se cancela la otra y se propaga
+     * el error (la semántica de StructuredTaskScope.ShutdownOnFailure, que en Java 21
+     * todavía es preview)
+     */
+    private ParallelLoad loadInParallel(String userEmail) {
+        System.out.println("   ⚡ Cargando preferencias y snapshot en paralelo");
+
+        ExecutorCompletionService<Object> completion = new ExecutorCompletionService<>(loadExecutor);
+        Future<Object> preferencesTask = completion.submit(() -> loadPreferences(userEmail));
+        Future<Object> snapshotTask = completion.submit(snapshotService::getSnapshot);
+
+        try {
+            for (int finished = 0; finished < 2; finished++) {
+                try {
+                    completion.take().get();
+                } catch (ExecutionException e) {
+                    preferencesTask.cancel(true);
+                    snapshotTask.cancel(true);
+                    if (e.getCause() instanceof RuntimeException cause) {
+                        throw cause;
+                    }
+                    throw new RuntimeException("Error cargando datos de recomendación", e.getCause());
+                }
+            }
 
-        return recommendations;
+            return new ParallelLoad(
+                    (LoadedPreferences) preferencesTask.get(),
+                    (PropertyCatalogSnapshot) snapshotTask.get()
+            );
+        } catch (InterruptedException | ExecutionException e) {
+            preferencesTask.cancel(true);
+            snapshotTask.cancel(true);
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            throw new RuntimeException("Carga de recomendaciones interrumpida", e);
+        }
     }
 
     /**
@@ -109,28 +361,40 @@ public class RecommendationManager {
         System.out.println("   ============================================");
         System.out.println("   🏠 Propiedad base ID: " + propertyId);
 
-        // Construir grafo si está vacío
-        if (propertyGraph.size() == 0) {
-            System.out.println("   ⚠️  Grafo vacío, construyendo...");
-            buildPropertyGraph();
+        List<Long> similarPropertyIds;
+
+        if (similarSource == SimilarSource.TABLE) {
+            // Vecinos precalculados compartidos por todas las instancias (una consulta indexada)
+            similarPropertyIds = similarityRepository.findNeighborIds(
+                    propertyId,
+                    MIN_SIMILAR_SCORE,
+                    PageRequest.of(0, limit)
+            );
+        } else if (similarSource == SimilarSource.ANN) {
+            // Vecinos aproximados (LSH): no necesita el grafo de todos los pares
+            similarPropertyIds = similarIndex.findSimilar(propertyId, MIN_SIMILAR_SCORE, limit);
+        } else if (propertyGraph.size() == 0) {
+            // Grafo vacío: se construye en segundo plano (una sola vez aunque lleguen varias
+            // peticiones) y mientras tanto se responde con el índice aproximado
+            GraphBuildJob job = startGraphBuild(true);
+            System.out.println("   ⚠️  Grafo vacío, construcción en segundo plano (trabajo " +
+                    job.getId() + "); usando índice ANN");
+            similarPropertyIds = similarIndex.findSimilar(propertyId, MIN_SIMILAR_SCORE, limit);
+        } else {
+            // Buscar propiedades similares usando KNN en el grafo
+            similarPropertyIds = propertyGraph.findSimilarProperties(
+                    propertyId,
+                    MIN_SIMILAR_SCORE,
+                    limit
+            );
         }
 
-        // Buscar propiedades similares usando KNN en el grafo
-        List<Long> similarPropertyIds = propertyGraph.findSimilarProperties(
-                propertyId,
-                0.3, // Similitud mínima 30%
-                limit
-        );
-
         System.out.println("   📊 IDs similares encontrados: " + similarPropertyIds.size());
 
-        // Convertir IDs a entidades Property
-        List<Property> similarProperties = new ArrayList<>();
-        for (Long id : similarPropertyIds) {
-            propertyRepository.findById(id).ifPresent(property -> {
-                similarProperties.add(property);
-                System.out.println("      • " + property.getTitle() + " (ID: " + id + ")");
-            });
+        // Convertir IDs a entidades Property en una sola consulta (conserva el ranking)
+        List<Property> similarProperties = loadPropertiesInOrder(similarPropertyIds);
+        for (Property property : similarProperties) {
+            System.out.println("      • " + property.getTitle() + " (ID: " + property.getId() + ")");
         }
 
         System.out.println("   ✅ Propiedades similares: " + similarProperties.size());
@@ -140,54 +404,400 @@ public class RecommendationManager {
     }
 
     /**
-     * Construye el grafo de similitud entre todas las propiedades
+     * Construye el grafo de similitud entre todas las propiedades en segundo plano
      * Usa algoritmos de Machine Learning para calcular similitudes
+     * Si ya hay una construcción en curso retorna ese mismo trabajo (single-flight).
+     * El grafo nuevo se arma aparte y se publica al final: mientras tanto
+     * las consultas siguen respondiendo con el grafo anterior
      */
-    public void buildPropertyGraph() {
-        System.out.println("\n🔨 ============================================");
-        System.out.println("   CONSTRUYENDO GRAFO DE SIMILITUD (ML)");
-        System.out.println("   ============================================");
+    public GraphBuildJob startGraphBuild() {
+        return startGraphBuild(false);
+    }
+
+    private GraphBuildJob startGraphBuild(boolean onlyIfEmpty) {
+        synchronized (buildJobs) {
+            if (activeBuildJob != null && activeBuildJob.isActive()) {
+                return activeBuildJob;
+            }
 
-        propertyGraph.clear();
-        List<Property> allProperties = propertyRepository.findAvailablePropertiesWithOwner();
+            GraphBuildJob job = new GraphBuildJob(buildJobSequence.incrementAndGet());
+            buildJobs.put(job.getId(), job);
+            activeBuildJob = job;
 
-        System.out.println("   📊 Total de propiedades: " + allProperties.size());
+            graphMaintenanceExecutor.execute(() -> runGraphBuild(job, onlyIfEmpty));
+            System.out.println("🔨 Trabajo de construcción del grafo " + job.getId() + " en cola");
+            return job;
+        }
+    }
 
-        // Agregar todas las propiedades al grafo
-        for (Property property : allProperties) {
-            propertyGraph.addProperty(property.getId());
+    /**
+     * Estado de un trabajo de construcción (null si no existe o ya se descartó)
+     */
+    public GraphBuildJob getGraphBuildJob(long jobId) {
+        synchronized (buildJobs) {
+            return buildJobs.get(jobId);
         }
+    }
 
-        // Calcular similitud entre cada par de propiedades
-        int edges = 0;
-        int comparisons = 0;
+    /**
+     * Último trabajo de construcción lanzado (null si no hubo ninguno)
+     */
+    public GraphBuildJob getLatestGraphBuildJob() {
+        synchronized (buildJobs) {
+            return activeBuildJob;
+        }
+    }
 
-        for (int i = 0; i < allProperties.size(); i++) {
-            for (int j = i + 1; j < allProperties.size(); j++) {
-                Property p1 = allProperties.get(i);
-                Property p2 = allProperties.get(j);
+    /**
+     * Solicita cancelar un trabajo; retorna el trabajo o null si no existe
+     */
+    public GraphBuildJob cancelGraphBuild(long jobId) {
+        GraphBuildJob job = getGraphBuildJob(jobId);
+        if (job != null && job.isActive()) {
+            job.cancel();
+            System.out.println("🛑 Cancelación solicitada para el trabajo " + jobId);
+        }
+        return job;
+    }
 
-                // Calcular similitud usando algoritmos de ML
-                double similarity = PropertyGraph.calculateSimilarity(p1, p2);
-                comparisons++;
+    private void runGraphBuild(GraphBuildJob job, boolean onlyIfEmpty) {
+        if (job.isCancelled()) {
+            job.markCancelled();
+            return;
+        }
 
-                // Solo agregar arista si hay similitud significativa (> 20%)
-                if (similarity > 0.2) {
-                    propertyGraph.addSimilarityEdge(p1.getId(), p2.getId(), similarity);
-                    edges++;
+        job.markRunning();
+        boolean leaseAcquired = false;
+        try {
+            synchronized (graphLock) {
+                // El grafo pudo llegar entretanto (restaurado desde disco o publicado por otra instancia)
+                if (onlyIfEmpty && (propertyGraph.size() > 0 || loadPublishedGraph())) {
+                    job.setNodes(propertyGraph.size());
+                    job.markCompleted(propertyGraph.edgeCount());
+                    return;
                 }
+
+                // Solo una instancia del cluster construye a la vez
+                leaseAcquired = buildLease.tryAcquire();
+                if (!leaseAcquired) {
+                    job.markSkipped("Otra instancia está construyendo el grafo; se cargará al publicarse");
+                    System.out.println("ℹ️ Trabajo " + job.getId() + " omitido: otra instancia tiene el lease");
+                    return;
+                }
+                rebuildPropertyGraph(job);
+            }
+        } catch (CancellationException e) {
+            job.markCancelled();
+            System.out.println("🛑 Construcción del grafo cancelada (trabajo " + job.getId() + ")");
+        } catch (Exception e) {
+            job.markFailed(e.getMessage());
+            System.err.println("❌ Error construyendo grafo (trabajo " + job.getId() + "): " + e.getMessage());
+        } finally {
+            if (leaseAcquired) {
+                buildLease.release();
             }
         }
+    }
+
+    /**
+     * Carga el grafo publicado por otra instancia si hay una generación nueva
+     * Se llama periódicamente (GraphRebuildScheduler); no hace nada sin lease configurado
+     */
+    public void syncPublishedGraph() {
+        if (!buildLease.isEnabled() || buildLease.publishedGeneration() <= loadedGeneration) {
+            return;
+        }
+
+        graphMaintenanceExecutor.execute(() -> {
+            try {
+                synchronized (graphLock) {
+                    loadPublishedGraph();
+                }
+            } catch (Exception e) {
+                System.err.println("❌ Error cargando grafo publicado: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Reemplaza el grafo local por el último publicado: primero el snapshot en disco
+     * (si la ruta es compartida) y si no, la tabla property_similarity
+     * Retorna true si cargó un grafo
+     */
+    private boolean loadPublishedGraph() {
+        long generation = buildLease.publishedGeneration();
+        if (!buildLease.isEnabled() || generation == 0 || generation <= loadedGeneration) {
+            return false;
+        }
+
+        CsrSimilarityGraph published = graphSnapshotStore.loadPublished(EDGE_THRESHOLD);
+        if (published == null && similarityTableWriter.isEnabled()) {
+            published = similarityTableWriter.readAll();
+        }
+        if (published == null) {
+            System.out.println("ℹ️ Generación " + generation + " publicada pero sin snapshot ni tabla disponibles");
+            return false;
+        }
+
+        // Si el líder lo calculó sobre el mismo snapshot que tenemos, ese es el punto de partida
+        PropertyCatalogSnapshot catalog = snapshotService.getLoadedSnapshot();
+        propertyGraph.replaceGraph(published);
+        graphCatalog = catalog != null && catalog.getFingerprint() == published.getCatalogFingerprint()
+                ? catalog : null;
+        clearPendingGraphChanges();
+        loadedGeneration = generation;
+        System.out.println("🔄 Grafo publicado (generación " + generation + ") cargado: " +
+                published.nodeCount() + " nodos, " + published.edgeCount() + " aristas");
+        return true;
+    }
+
+    private void rebuildPropertyGraph(GraphBuildJob job) {
+        System.out.println("\n🔨 ============================================");
+        System.out.println("   CONSTRUYENDO GRAFO DE SIMILITUD (ML)");
+        System.out.println("   ============================================");
+
+        // Los features ya están calculados en el snapshot (una vez por propiedad al cargarlo)
+        PropertyCatalogSnapshot catalog = snapshotService.getSnapshot();
+        List<PropertyFeatures> features = catalog.getFeatureList();
+
+        System.out.println("   📊 Total de propiedades: " + features.size() +
+                " (snapshot v" + catalog.getVersion() + ")");
+        job.setNodes(features.size());
+
+        // Agregar todas las propiedades al grafo (con su vector de características)
+        CsrSimilarityGraph.Builder graph = CsrSimilarityGraph.builder()
+                .catalogFingerprint(catalog.getFingerprint());
+        for (PropertyFeatures property : features) {
+            graph.addNode(property.getId(), property.getVector());
+        }
+
+        // Calcular similitudes (todos los pares o por bloques según la configuración)
+        long start = System.currentTimeMillis();
+        PropertyGraphBuilder.Result result = graphBuilder.build(features, EDGE_THRESHOLD, job);
+        PropertyGraphBuilder.EdgeBuffer edgeBuffer = result.getEdges();
+
+        for (int i = 0; i < edgeBuffer.size(); i++) {
+            graph.addEdge(
+                    edgeBuffer.getSource(i),
+                    edgeBuffer.getTarget(i),
+                    edgeBuffer.getWeight(i)
+            );
+        }
+
+        // Compilar el CSR (vecinos ordenados por similitud) y publicarlo de forma atómica
+        CsrSimilarityGraph built = graph.build();
+        if (job.isCancelled()) {
+            throw new CancellationException("Construcción del grafo cancelada");
+        }
+        if (!buildLease.isHeld()) {
+            throw new RuntimeException("Lease de construcción perdido; el grafo no se publica");
+        }
+        propertyGraph.replaceGraph(built);
+        graphCatalog = catalog;
+        clearPendingGraphChanges();
+        graphSnapshotStore.save(built, EDGE_THRESHOLD);
+        similarityTableWriter.replaceAll(built);
+
+        // Avisar a las demás instancias (recargan en GraphRebuildScheduler)
+        long generation = buildLease.publish();
+        if (generation >= 0) {
+            loadedGeneration = generation;
+        }
+
+        int edges = edgeBuffer.size();
+        long comparisons = result.getComparisons();
+        job.markCompleted(edges);
 
         System.out.println("   ✅ Grafo construido exitosamente:");
-        System.out.println("      • Nodos (propiedades): " + allProperties.size());
+        System.out.println("      • Nodos (propiedades): " + features.size());
+        System.out.println("      • Modo: " + result.getMode() + " (" + result.getBlocks() + " bloques)");
         System.out.println("      • Comparaciones realizadas: " + comparisons);
         System.out.println("      • Aristas (similitudes > 20%): " + edges);
         System.out.println("      • Densidad del grafo: " +
-                String.format("%.2f%%", (edges * 100.0) / comparisons));
+                String.format("%.2f%%", comparisons == 0 ? 0.0 : (edges * 100.0) / comparisons));
+        System.out.println("      • Tiempo: " + (System.currentTimeMillis() - start) + " ms");
         System.out.println("   ============================================\n");
     }
 
+    /**
+     * Al arrancar, recupera el grafo guardado en disco si se calculó sobre el snapshot
+     * actual del catálogo, en segundo plano, en lugar de reconstruirlo en la primera petición
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void restorePropertyGraph() {
+        if (!graphSnapshotStore.isEnabled()) {
+            return;
+        }
+
+        graphMaintenanceExecutor.execute(() -> {
+            synchronized (graphLock) {
+                if (propertyGraph.size() > 0) {
+                    return;
+                }
+                long generation = buildLease.publishedGeneration();
+                PropertyCatalogSnapshot catalog = snapshotService.getSnapshot();
+                CsrSimilarityGraph restored = graphSnapshotStore.load(EDGE_THRESHOLD, catalog.getFingerprint());
+                if (restored != null) {
+                    propertyGraph.replaceGraph(restored);
+                    graphCatalog = catalog;
+                    loadedGeneration = generation;
+                }
+            }
+        });
+    }
+
+    /**
+     * Mantiene el grafo al día cuando se publica un snapshot nuevo del catálogo
+     * (alta, cambio o baja de propiedades). Se ejecuta en segundo plano, en la misma
+     * cola que la construcción: un snapshot que llega durante un build se aplica después
+     */
+    @EventListener
+    public void onCatalogRefreshed(CatalogSnapshotRefreshedEvent event) {
+        graphMaintenanceExecutor.execute(() -> {
+            try {
+                syncGraphWithCatalog();
+            } catch (Exception e) {
+                System.err.println("❌ Error actualizando grafo para snapshot v" +
+                        event.getCatalogVersion() + ": " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Aplica al grafo las propiedades que cambiaron entre el snapshot que refleja
+     * y el último publicado; los features salen del snapshot, sin cargar entidades
+     */
+    private void syncGraphWithCatalog() {
+        synchronized (graphLock) {
+            PropertyCatalogSnapshot catalog = snapshotService.getLoadedSnapshot();
+            PropertyCatalogSnapshot previous = graphCatalog;
+
+            // Si el grafo aún no se construyó, la construcción completa lo incluirá
+            if (catalog == null || propertyGraph.size() == 0) {
+                return;
+            }
+            // Grafo restaurado o publicado por otra instancia: se toma este snapshot como base
+            if (previous == null) {
+                graphCatalog = catalog;
+                return;
+            }
+            if (previous.getVersion() >= catalog.getVersion()) {
+                return;
+            }
+
+            long[] changedIds = catalog.changedIdsSince(previous);
+            Set<Long> affected = new HashSet<>();
+
+            for (long propertyId : changedIds) {
+                int index = catalog.indexOf(propertyId);
+                if (index < 0) {
+                    // Eliminada o ya no disponible: sale del grafo
+                    affected.addAll(removePropertyFromGraph(propertyId));
+                } else {
+                    affected.addAll(updatePropertyInGraph(catalog, index));
+                }
+            }
+            graphCatalog = catalog;
+
+            if (!affected.isEmpty() && propertyGraph.size() > 0) {
+                // Solo cambian las filas de las propiedades y de quienes las tenían o las tienen como vecinas;
+                // el archivo y la tabla se escriben a lo sumo una vez por intervalo (flushGraphChanges)
+                pendingGraphRows.addAll(affected);
+                graphChangesPending = true;
+            }
+        }
+    }
+
+    /**
+     * Escribe los cambios incrementales pendientes: el snapshot en disco y las filas
+     * afectadas de property_similarity. Se llama periódicamente (GraphRebuildScheduler):
+     * muchos cambios seguidos cuestan una sola compactación y una sola escritura por intervalo
+     *
+     * Con varias instancias solo escribe quien obtiene el lease, así nunca compite con el
+     * replaceAll de una construcción ni con otra instancia; si no lo obtiene, los cambios
+     * quedan pendientes para el próximo intervalo
+     */
+    public void flushGraphChanges() {
+        if (!graphChangesPending) {
+            return;
+        }
+
+        graphMaintenanceExecutor.execute(() -> {
+            boolean leaseAcquired = false;
+            try {
+                synchronized (graphLock) {
+                    PropertyCatalogSnapshot catalog = graphCatalog;
+                    if (!graphChangesPending || catalog == null) {
+                        return;
+                    }
+
+                    leaseAcquired = buildLease.tryAcquire();
+                    if (!leaseAcquired) {
+                        System.out.println("ℹ️ Cambios del grafo pendientes: otra instancia tiene el lease");
+                        return;
+                    }
+
+                    if (graphSnapshotStore.isEnabled()) {
+                        graphSnapshotStore.save(
+                                propertyGraph.snapshot().withCatalogFingerprint(catalog.getFingerprint()),
+                                EDGE_THRESHOLD
+                        );
+                    }
+                    similarityTableWriter.replaceRows(propertyGraph, pendingGraphRows);
+                    clearPendingGraphChanges();
+                }
+            } catch (Exception e) {
+                System.err.println("❌ Error guardando cambios del grafo: " + e.getMessage());
+            } finally {
+                if (leaseAcquired) {
+                    buildLease.release();
+                }
+            }
+        });
+    }
+
+    // Se llama con graphLock: el grafo completo ya está guardado o vino de otra instancia
+    private void clearPendingGraphChanges() {
+        pendingGraphRows.clear();
+        graphChangesPending = false;
+    }
+
+    /**
+     * Agrega o re-calcula un nodo: compara solo contra las demás propiedades del snapshot (O(n))
+     * con la misma selección de aristas que el modo de construcción configurado,
+     * y reescribe solo las filas afectadas del grafo; retorna sus IDs
+     */
+    private Set<Long> updatePropertyInGraph(PropertyCatalogSnapshot catalog, int index) {
+        PropertyFeatures target = catalog.getFeatures(index);
+        Map<Long, Double> similarities = graphBuilder.selectNodeEdges(catalog, index, EDGE_THRESHOLD, propertyGraph);
+
+        Set<Long> affected = propertyGraph.replaceEdges(
+                target.getId(),
+                target.getVector(),
+                similarities,
+                graphBuilder.rowLimit()
+        );
+
+        System.out.println("🔗 Grafo actualizado: propiedad " + target.getId() +
+                " con " + similarities.size() + " aristas");
+        return affected;
+    }
+
+    /**
+     * Elimina un nodo y sus aristas del grafo; retorna los IDs de las filas afectadas
+     */
+    private Set<Long> removePropertyFromGraph(long propertyId) {
+        Set<Long> affected = propertyGraph.removeProperty(propertyId);
+        System.out.println("🔗 Propiedad " + propertyId + " eliminada del grafo");
+        return affected;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        graphMaintenanceExecutor.shutdownNow();
+        loadExecutor.shutdownNow();
+    }
+
     /**
      * Cambia la estrategia de recomendación actual
      *
@@ -197,6 +807,7 @@ public class RecommendationManager {
         for (PropertyRecommender strategy : strategies) {
             if (strategy.getStrategyName().equalsIgnoreCase(strategyName)) {
                 this.currentStrategy = strategy;
+                resultCache.clear();
                 System.out.println("🔄 Estrategia cambiada a: " + strategyName);
                 return;
             }
@@ -215,21 +826,121 @@ public class RecommendationManager {
         return strategyNames;
     }
 
+    /**
+     * Estadísticas de la caché de resultados (aciertos, fallos, tamaño)
+     * y de la caché de preferencias compiladas
+     */
+    public Map<String, Object> getCacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(resultCache.stats());
+        stats.put("compiledPreferences", compiledPreferencesCache.stats());
+        stats.put("sharedRankings", sharedRankings.stats());
+        stats.put("coldStart", coldStartRanking.stats());
+        return stats;
+    }
+
+    /**
+     * Ranking del snapshot compartido entre usuarios con preferencias equivalentes
+     * La clave es (firma de preferencias, versión de catálogo); un ranking guardado sirve
+     * para cualquier límite menor o igual (el top-k es prefijo del top-n con n >= k)
+     * Solo aplica al scoring por preferencias: el filtrado colaborativo depende del usuario
+     */
+    private List<Long> rankWithSharedMemo(PropertyCatalogSnapshot snapshot,
+                                          CompiledPreferences compiled,
+                                          int limit) {
+        PropertyRecommender strategy = currentStrategy;
+        if (!(strategy instanceof ScoreBasedPropertyRecommender)) {
+            return strategy.recommendIds(snapshot, compiled, limit);
+        }
+
+        SharedRankingKey key = new SharedRankingKey(compiled.getSignature(), snapshot.getVersion());
+        SharedRanking shared = sharedRankings.get(key);
+
+        if (shared != null && (shared.ids().size() >= limit || shared.complete())) {
+            System.out.println("   ♻️  Ranking compartido por preferencias equivalentes (firma " +
+                    compiled.getSignature() + ")");
+            return shared.ids().subList(0, Math.min(limit, shared.ids().size()));
+        }
+
+        List<Long> ids = strategy.recommendIds(snapshot, compiled, limit);
+        // Menos resultados que el límite: ya están todos los candidatos
+        sharedRankings.put(key, new SharedRanking(List.copyOf(ids), ids.size() < limit));
+        return ids;
+    }
+
+    /**
+     * Carga las propiedades de una lista de IDs conservando su orden
+     */
+    private List<Property> loadPropertiesInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Long, Property> byId = new HashMap<>();
+        for (Property property : propertyRepository.findAllWithOwnerByIdIn(ids)) {
+            byId.put(property.getId(), property);
+        }
+
+        List<Property> ordered = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Property property = byId.get(id);
+            if (property != null) {
+                ordered.add(property);
+            }
+        }
+        return ordered;
+    }
+
     /**
      * Crea preferencias por defecto para un usuario nuevo
      */
     private UserPreferences createDefaultPreferences(User user) {
         System.out.println("   ⚠️  Usuario sin preferencias, usando valores por defecto");
 
-        return UserPreferences.builder()
-                .user(user)
-                .minBedrooms(1)
-                .minBathrooms(1)
-                .priceWeight(0.3)
-                .locationWeight(0.25)
-                .amenitiesWeight(0.2)
-                .sizeWeight(0.15)
-                .typeWeight(0.1)
-                .build();
-    }
-}
\ No newline at end of file
+        return ColdStartRanking.defaultPreferences(user);
+    }
+
+    /**
+     * Origen de los vecinos para "propiedades similares"
+     */
+    private enum SimilarSource {
+        GRAPH,  // grafo en memoria de esta instancia
+        ANN,    // índice LSH aproximado
+        TABLE   // tabla property_similarity compartida
+    }
+
+    /**
+     * Clave de la caché de resultados por usuario
+     */
+    private record ResultCacheKey(String userEmail, long preferencesVersion, long catalogVersion, int limit) {
+    }
+
+    /**
+     * Clave de la caché de preferencias compiladas
+     */
+    private record PreferencesKey(String userEmail, long preferencesVersion) {
+    }
+
+    /**
+     * Preferencias cargadas; stored = false si son las de por defecto
+     */
+    private record LoadedPreferences(UserPreferences preferences, boolean stored) {
+    }
+
+    /**
+     * Resultado de la carga en paralelo
+     */
+    private record ParallelLoad(LoadedPreferences preferences, PropertyCatalogSnapshot snapshot) {
+    }
+
+    /**
+     * Clave de los rankings compartidos entre preferencias equivalentes
+     */
+    private record SharedRankingKey(CompiledPreferences.Signature signature, long catalogVersion) {
+    }
+
+    /**
+     * Ranking compartido; complete indica que contiene a todos los candidatos
+     */
+    private record SharedRanking(List<Long> ids, boolean complete) {
+    }
+}
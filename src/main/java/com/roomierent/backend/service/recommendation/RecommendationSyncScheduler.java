@@ -0,0 +1,50 @@
+package com.roomierent.backend.service.recommendation;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sincroniza el estado en memoria de las recomendaciones con cambios hechos en otras
+ * instancias (los eventos de Spring solo llegan a la instancia que hizo el cambio)
+ *  - Snapshot del catálogo: se refresca si cambió la marca de la tabla properties
+ *  - Versiones de preferencias: se incrementan las de usuarios con updatedAt nuevo
+ *  - Matriz de co-favoritos: se aplican los favoritos nuevos o se reconstruye
+ */
+@Component
+public class RecommendationSyncScheduler {
+
+    private final PropertySnapshotService snapshotService;
+    private final PreferencesVersionTracker preferencesVersions;
+    private final ItemItemPropertyRecommender itemItemRecommender;
+    private final boolean enabled;
+
+    public RecommendationSyncScheduler(
+            PropertySnapshotService snapshotService,
+            PreferencesVersionTracker preferencesVersions,
+            ItemItemPropertyRecommender itemItemRecommender,
+            @Value("${recommendation.sync.enabled:true}") boolean enabled) {
+
+        this.snapshotService = snapshotService;
+        this.preferencesVersions = preferencesVersions;
+        this.itemItemRecommender = itemItemRecommender;
+        this.enabled = enabled;
+    }
+
+    @Scheduled(
+            initialDelayString = "${recommendation.sync.poll-ms:30000}",
+            fixedDelayString = "${recommendation.sync.poll-ms:30000}"
+    )
+    public void checkForChanges() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            snapshotService.checkForChanges();
+            preferencesVersions.checkForChanges();
+            itemItemRecommender.checkForChanges();
+        } catch (Exception e) {
+            System.err.println("❌ Error sincronizando cambios de otras instancias: " + e.getMessage());
+        }
+    }
+}
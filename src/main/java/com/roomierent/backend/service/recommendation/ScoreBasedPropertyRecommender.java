@@ -2,12 +2,18 @@ package com.roomierent.backend.service.recommendation;
 
 import com.roomierent.backend.dto.RecommendationScore;
 import com.roomierent.backend.model.entity.Property;
-import com.roomierent.backend.model.entity.UserPreferences;
-import com.roomierent.backend.util.SimilarityCalculator;
+import com.roomierent.backend.util.PriceUtils;
+import com.roomierent.backend.util.datastructures.AmenityDictionary;
+import com.roomierent.backend.util.datastructures.PropertyCatalogSnapshot;
+import com.roomierent.backend.util.datastructures.PropertyFeatures;
+import com.roomierent.backend.util.datastructures.TopKSelector;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.math.BigDecimal;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import java.util.stream.Collectors;
 
 /**
@@ -17,42 +23,77 @@ import java.util.stream.Collectors;
 @Component
 public class ScoreBasedPropertyRecommender implements PropertyRecommender {
 
+    private final int parallelThreshold;
+    private final int parallelChunkSize;
+    private final ForkJoinPool scoringPool;
+
+    public ScoreBasedPropertyRecommender(
+            @Value("${recommendation.parallel.threshold:20000}") int parallelThreshold,
+            @Value("${recommendation.parallel.chunk-size:4096}") int parallelChunkSize,
+            @Value("${recommendation.parallel.parallelism:0}") int parallelism) {
+
+        this.parallelThreshold = parallelThreshold;
+        this.parallelChunkSize = Math.max(parallelChunkSize, 1);
+
+        // Pool dedicado para no competir con el common pool de la JVM
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.scoringPool = new ForkJoinPool(threads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scoringPool.shutdownNow();
+    }
+
     @Override
     public List<Property> recommend(
             List<Property> availableProperties,
-            UserPreferences preferences,
+            CompiledPreferences prefs,
             int limit
     ) {
         System.out.println("🤖 Iniciando recomendación basada en IA...");
         System.out.println("   📊 Propiedades a evaluar: " + availableProperties.size());
 
-        // 1. Filtrar propiedades que NO cumplen requisitos mínimos
-        List<Property> filteredProperties = filterByHardConstraints(
-                availableProperties,
-                preferences
-        );
+        // 0. Las candidatas vienen de la base: derivar sus features (registra ciudad, barrio
+        //    y amenities en los diccionarios) y volver a resolver las preferencias
+        //    por si nombran una ciudad o amenity que recién aparece
+        PropertyFeatures[] features = new PropertyFeatures[availableProperties.size()];
+        for (int i = 0; i < features.length; i++) {
+            features[i] = PropertyFeatures.of(availableProperties.get(i));
+        }
+        prefs = prefs.withCurrentDictionary();
+
+        // 1. Filtrar y seleccionar el top-k con un heap acotado (sin ordenar toda la lista)
+        TopKSelector top = new TopKSelector(limit, availableProperties.size());
+        int filtered = 0;
+
+        for (int i = 0; i < availableProperties.size(); i++) {
+            Property property = availableProperties.get(i);
+            // El precio se pasa a centavos una sola vez por propiedad
+            long priceCents = PriceUtils.toCents(property.getPrice());
+            if (matchesHardConstraints(property, features[i], priceCents, prefs)) {
+                top.offer(calculateTotalScore(property, features[i], priceCents, prefs), i);
+                filtered++;
+            }
+        }
 
-        System.out.println("   ✅ Propiedades después de filtros duros: " + filteredProperties.size());
+        System.out.println("   ✅ Propiedades después de filtros duros: " + filtered);
 
-        if (filteredProperties.isEmpty()) {
+        if (filtered == 0) {
             System.out.println("   ⚠️ Ninguna propiedad cumple los requisitos mínimos");
             return new ArrayList<>();
         }
 
-        // 2. Calcular scores para cada propiedad
-        List<RecommendationScore> scoredProperties = new ArrayList<>();
+        top.sortDescending();
 
-        for (Property property : filteredProperties) {
-            RecommendationScore score = calculateScore(property, preferences);
-            scoredProperties.add(score);
+        // 2. Detalle de score solo para las k ganadoras
+        List<RecommendationScore> scoredProperties = new ArrayList<>(top.size());
+        for (int rank = 0; rank < top.size(); rank++) {
+            int index = top.indexAt(rank);
+            scoredProperties.add(calculateScore(availableProperties.get(index), features[index], prefs));
         }
 
-        // 3. Ordenar por score total (mayor a menor)
-        scoredProperties.sort((a, b) ->
-                Double.compare(b.getTotalScore(), a.getTotalScore())
-        );
-
-        // 4. Log de las mejores recomendaciones
+        // 3. Log de las mejores recomendaciones
         System.out.println("   🏆 Top 3 propiedades recomendadas:");
         for (int i = 0; i < Math.min(3, scoredProperties.size()); i++) {
             RecommendationScore rs = scoredProperties.get(i);
@@ -63,250 +104,333 @@ public class ScoreBasedPropertyRecommender implements PropertyRecommender {
             );
         }
 
-        // 5. Retornar las mejores N propiedades
+        // 4. Retornar las mejores N propiedades
         return scoredProperties.stream()
-                .limit(limit)
                 .map(RecommendationScore::getProperty)
                 .collect(Collectors.toList());
     }
 
     /**
-     * Filtra propiedades por restricciones duras (hard constraints)
+     * Verifica si una propiedad cumple las restricciones mínimas
      */
-    private List<Property> filterByHardConstraints(
-            List<Property> properties,
-            UserPreferences preferences
-    ) {
-        return properties.stream()
-                .filter(p -> matchesHardConstraints(p, preferences))
-                .collect(Collectors.toList());
+    private boolean matchesHardConstraints(Property property, PropertyFeatures features, long priceCents,
+                                           CompiledPreferences prefs) {
+        return matchesHardConstraints(
+                priceCents,
+                property.getBedrooms() != null ? property.getBedrooms() : 0,
+                property.getBathrooms() != null ? property.getBathrooms() : 0,
+                property.getArea() != null ? property.getArea() : Double.NaN,
+                features.getCityId(),
+                prefs
+        );
     }
 
     /**
-     * Verifica si una propiedad cumple las restricciones mínimas
+     * Score total ponderado sin crear objetos (usado en el loop de selección)
      */
-    private boolean matchesHardConstraints(Property property, UserPreferences preferences) {
-        // Filtro 1: Rango de precio
-        if (preferences.getMinPrice() != null &&
-                property.getPrice().compareTo(preferences.getMinPrice()) < 0) {
-            return false;
-        }
-
-        if (preferences.getMaxPrice() != null &&
-                property.getPrice().compareTo(preferences.getMaxPrice()) > 0) {
-            return false;
-        }
-
-        // Filtro 2: Habitaciones mínimas
-        if (preferences.getMinBedrooms() != null &&
-                property.getBedrooms() < preferences.getMinBedrooms()) {
-            return false;
-        }
-
-        // Filtro 3: Baños mínimos
-        if (preferences.getMinBathrooms() != null &&
-                property.getBathrooms() < preferences.getMinBathrooms()) {
-            return false;
-        }
-
-        // Filtro 4: Área mínima
-        if (preferences.getMinArea() != null &&
-                (property.getArea() == null || property.getArea() < preferences.getMinArea())) {
-            return false;
-        }
-
-        // Filtro 5: Ciudad preferida
-        if (preferences.getPreferredCity() != null &&
-                !preferences.getPreferredCity().isEmpty() &&
-                !property.getCity().equalsIgnoreCase(preferences.getPreferredCity())) {
-            return false;
-        }
-
-        return true;
+    private double calculateTotalScore(Property property, PropertyFeatures features, long priceCents,
+                                       CompiledPreferences prefs) {
+        return (calculatePriceScore(priceCents, prefs) * prefs.priceWeight) +
+                (calculateLocationScore(features, prefs) * prefs.locationWeight) +
+                (calculateAmenitiesScore(features, prefs) * prefs.amenitiesWeight) +
+                (calculateSizeScore(property, prefs) * prefs.sizeWeight) +
+                (calculateTypeScore(property, prefs) * prefs.typeWeight);
     }
 
     private RecommendationScore calculateScore(
             Property property,
-            UserPreferences preferences
+            PropertyFeatures features,
+            CompiledPreferences prefs
     ) {
         RecommendationScore score = new RecommendationScore();
         score.setProperty(property);
 
         // Score 1: Precio (qué tan cerca está del rango ideal)
-        score.setPriceScore(calculatePriceScore(property, preferences));
+        score.setPriceScore(calculatePriceScore(PriceUtils.toCents(property.getPrice()), prefs));
 
         // Score 2: Ubicación (ciudad, barrio)
-        score.setLocationScore(calculateLocationScore(property, preferences));
+        score.setLocationScore(calculateLocationScore(features, prefs));
 
         // Score 3: Amenities (servicios deseados)
-        score.setAmenitiesScore(calculateAmenitiesScore(property, preferences));
+        score.setAmenitiesScore(calculateAmenitiesScore(features, prefs));
 
         // Score 4: Tamaño (área)
-        score.setSizeScore(calculateSizeScore(property, preferences));
+        score.setSizeScore(calculateSizeScore(property, prefs));
 
         // Score 5: Tipo de propiedad
-        score.setTypeScore(calculateTypeScore(property, preferences));
+        score.setTypeScore(calculateTypeScore(property, prefs));
 
         // Calcular score total ponderado usando los pesos del usuario
         score.calculateTotalScore(
-                preferences.getPriceWeight(),
-                preferences.getLocationWeight(),
-                preferences.getAmenitiesWeight(),
-                preferences.getSizeWeight(),
-                preferences.getTypeWeight()
+                prefs.priceWeight,
+                prefs.locationWeight,
+                prefs.amenitiesWeight,
+                prefs.sizeWeight,
+                prefs.typeWeight
         );
 
         return score;
     }
 
-    /**
-     * Score de precio: usa función Gaussiana para premiar precios cercanos al ideal
-     */
-    private double calculatePriceScore(Property property, UserPreferences preferences) {
-        BigDecimal price = property.getPrice();
-        BigDecimal minPrice = preferences.getMinPrice();
-        BigDecimal maxPrice = preferences.getMaxPrice();
+    private double calculateLocationScore(PropertyFeatures features, CompiledPreferences prefs) {
+        return calculateLocationScore(features.getCityId(), features.getNeighborhoodId(), prefs);
+    }
 
-        // Si no hay preferencias de precio, score neutro
-        if (minPrice == null || maxPrice == null) {
+    private double calculateAmenitiesScore(PropertyFeatures features, CompiledPreferences prefs) {
+        if (!prefs.hasAmenities) {
             return 0.5;
         }
+        long[] propertyMask = features.getAmenityMask();
+        return AmenityDictionary.jaccard(prefs.desiredAmenityMask, 0, prefs.desiredAmenityMask.length,
+                propertyMask, 0, propertyMask.length, prefs.unknownAmenities);
+    }
 
-        // Precio ideal = punto medio del rango
-        BigDecimal idealPrice = minPrice.add(maxPrice).divide(BigDecimal.valueOf(2));
-        BigDecimal priceRange = maxPrice.subtract(minPrice);
-
-        // Distancia normalizada del precio al ideal
-        double normalizedDistance = price.subtract(idealPrice)
-                .abs()
-                .divide(priceRange, BigDecimal.ROUND_HALF_UP)
-                .doubleValue();
+    private double calculateSizeScore(Property property, CompiledPreferences prefs) {
+        return calculateSizeScore(property.getArea() != null ? property.getArea() : Double.NaN, prefs);
+    }
 
-        // Función Gaussiana: máximo score cuando está en el precio ideal
-        // e^(-(x^2) / 2σ^2), donde σ = 0.5
-        double sigma = 0.5;
-        return Math.exp(-(normalizedDistance * normalizedDistance) / (2 * sigma * sigma));
+    private double calculateTypeScore(Property property, CompiledPreferences prefs) {
+        return calculateTypeScore(property.getType() != null ? property.getType().ordinal() : -1, prefs);
     }
 
-    /**
-     * Score de ubicación: usa matching de ciudad y barrio
-     */
-    private double calculateLocationScore(Property property, UserPreferences preferences) {
-        double score = 0.0;
+    @Override
+    public TopKSelector selectTopK(
+            PropertyCatalogSnapshot snapshot,
+            CompiledPreferences prefs,
+            int k
+    ) {
+        System.out.println("🤖 Iniciando recomendación basada en IA (snapshot v" + snapshot.getVersion() + ")...");
+        System.out.println("   📊 Propiedades a evaluar: " + snapshot.size());
 
-        // Ciudad preferida
-        if (preferences.getPreferredCity() != null &&
-                !preferences.getPreferredCity().isEmpty()) {
+        // 1. Filtrar sobre los arreglos primitivos
+        int[] candidates = new int[snapshot.size()];
+        int filtered = 0;
 
-            if (property.getCity().equalsIgnoreCase(preferences.getPreferredCity())) {
-                score += 0.6; // 60% del score por ciudad correcta
+        for (int i = 0; i < snapshot.size(); i++) {
+            if (matchesHardConstraints(snapshot, i, prefs)) {
+                candidates[filtered++] = i;
             }
-        } else {
-            score += 0.3; // Sin preferencia de ciudad = score neutral
         }
 
-        // Barrios preferidos
-        if (preferences.getPreferredNeighborhoods() != null &&
-                !preferences.getPreferredNeighborhoods().isEmpty()) {
+        System.out.println("   ✅ Propiedades después de filtros duros: " + filtered);
 
-            String[] preferredNeighborhoods = preferences.getPreferredNeighborhoods().split(",");
+        if (filtered == 0) {
+            System.out.println("   ⚠️ Ninguna propiedad cumple los requisitos mínimos");
+        }
 
-            for (String neighborhood : preferredNeighborhoods) {
-                if (property.getNeighborhood() != null &&
-                        property.getNeighborhood().equalsIgnoreCase(neighborhood.trim())) {
-                    score += 0.4; // 40% del score por barrio preferido
-                    break;
-                }
-            }
+        // 2. Calcular scores conservando solo el top-k (en paralelo si hay muchos candidatos)
+        TopKSelector top;
+        if (filtered >= parallelThreshold) {
+            System.out.println("   ⚡ Scoring paralelo en " + scoringPool.getParallelism() + " hilos");
+            top = scoringPool.invoke(new ScoringTask(snapshot, prefs, candidates, 0, filtered, k));
         } else {
-            score += 0.2; // Sin preferencia de barrio = score neutral
+            top = scoreRange(snapshot, prefs, candidates, 0, filtered, k);
         }
 
-        return Math.min(score, 1.0);
+        top.sortDescending();
+
+        // 3. Log de las mejores recomendaciones
+        if (top.size() > 0) {
+            System.out.println("   🏆 Top 3 propiedades recomendadas:");
+        }
+        for (int rank = 0; rank < Math.min(3, top.size()); rank++) {
+            System.out.printf("      #%d: ID %d (Score: %.3f)%n",
+                    rank + 1,
+                    snapshot.getId(top.indexAt(rank)),
+                    top.scoreAt(rank)
+            );
+        }
+
+        return top;
     }
 
     /**
-     * Score de amenities: Jaccard Similarity entre amenities deseados y disponibles
+     * Calcula el top-k de un rango de candidatos en el hilo actual
      */
-    private double calculateAmenitiesScore(Property property, UserPreferences preferences) {
-        if (preferences.getDesiredAmenities() == null ||
-                preferences.getDesiredAmenities().isEmpty()) {
-            return 0.5; // Sin preferencias = score neutro
+    private TopKSelector scoreRange(
+            PropertyCatalogSnapshot snapshot,
+            CompiledPreferences prefs,
+            int[] candidates,
+            int from,
+            int to,
+            int k
+    ) {
+        TopKSelector top = new TopKSelector(k, to - from);
+        for (int c = from; c < to; c++) {
+            int i = candidates[c];
+            top.offer(calculateScore(snapshot, i, prefs), i);
+        }
+        return top;
+    }
+
+    /**
+     * Tarea fork-join: divide los candidatos en bloques, cada bloque calcula su propio
+     * top-k y los resultados se combinan al final. Como el desempate es por índice,
+     * el resultado es idéntico al del camino secuencial
+     */
+    private final class ScoringTask extends RecursiveTask<TopKSelector> {
+
+        private final PropertyCatalogSnapshot snapshot;
+        private final CompiledPreferences prefs;
+        private final int[] candidates;
+        private final int from;
+        private final int to;
+        private final int k;
+
+        private ScoringTask(PropertyCatalogSnapshot snapshot, CompiledPreferences prefs,
+                            int[] candidates, int from, int to, int k) {
+            this.snapshot = snapshot;
+            this.prefs = prefs;
+            this.candidates = candidates;
+            this.from = from;
+            this.to = to;
+            this.k = k;
         }
 
-        Set<String> desiredAmenities = new HashSet<>(
-                Arrays.asList(preferences.getDesiredAmenities().split(","))
+        @Override
+        protected TopKSelector compute() {
+            if (to - from <= parallelChunkSize) {
+                return scoreRange(snapshot, prefs, candidates, from, to, k);
+            }
+
+            int middle = (from + to) >>> 1;
+            ScoringTask left = new ScoringTask(snapshot, prefs, candidates, from, middle, k);
+            ScoringTask right = new ScoringTask(snapshot, prefs, candidates, middle, to, k);
+
+            left.fork();
+            TopKSelector result = right.compute();
+            result.merge(left.join());
+            return result;
+        }
+    }
+
+    /**
+     * Restricciones duras evaluadas sobre una fila del snapshot
+     */
+    private boolean matchesHardConstraints(PropertyCatalogSnapshot snapshot, int i, CompiledPreferences prefs) {
+        return matchesHardConstraints(
+                snapshot.getPriceCents(i),
+                snapshot.getBedrooms(i),
+                snapshot.getBathrooms(i),
+                snapshot.getArea(i),
+                snapshot.getCityId(i),
+                prefs
         );
+    }
 
-        Set<String> propertyAmenities = new HashSet<>();
-        if (property.getAmenities() != null && !property.getAmenities().isEmpty()) {
-            propertyAmenities.addAll(
-                    Arrays.asList(property.getAmenities().split(","))
-            );
+    /**
+     * Restricciones duras sobre valores primitivos (precio en centavos, área NaN si no tiene)
+     */
+    private boolean matchesHardConstraints(long priceCents, int bedrooms, int bathrooms, double area,
+                                           int cityId, CompiledPreferences prefs) {
+        if (prefs.hasMinPrice && priceCents < prefs.minPriceCents) {
+            return false;
+        }
+        if (prefs.hasMaxPrice && priceCents > prefs.maxPriceCents) {
+            return false;
+        }
+        if (bedrooms < prefs.minBedrooms) {
+            return false;
         }
+        if (bathrooms < prefs.minBathrooms) {
+            return false;
+        }
+        if (prefs.hasMinArea() && (Double.isNaN(area) || area < prefs.minArea)) {
+            return false;
+        }
+        return !prefs.hasCity || prefs.matchesCity(cityId);
+    }
 
-        if (desiredAmenities.isEmpty()) {
+    /**
+     * Score total ponderado de una fila del snapshot
+     */
+    private double calculateScore(PropertyCatalogSnapshot snapshot, int i, CompiledPreferences prefs) {
+        double priceScore = calculatePriceScore(snapshot.getPriceCents(i), prefs);
+        double locationScore = calculateLocationScore(snapshot.getCityId(i), snapshot.getNeighborhoodId(i), prefs);
+        double amenitiesScore = calculateAmenitiesScore(snapshot, i, prefs);
+        double sizeScore = calculateSizeScore(snapshot.getArea(i), prefs);
+        double typeScore = calculateTypeScore(snapshot.getTypeOrdinal(i), prefs);
+
+        return (priceScore * prefs.priceWeight) +
+                (locationScore * prefs.locationWeight) +
+                (amenitiesScore * prefs.amenitiesWeight) +
+                (sizeScore * prefs.sizeWeight) +
+                (typeScore * prefs.typeWeight);
+    }
+
+    /**
+     * Score de precio: función Gaussiana centrada en el punto medio del rango
+     * (aritmética en centavos, sin BigDecimal)
+     */
+    private double calculatePriceScore(long priceCents, CompiledPreferences prefs) {
+        if (!prefs.hasMinPrice || !prefs.hasMaxPrice) {
             return 0.5;
         }
 
-        // Normalizar a minúsculas
-        desiredAmenities = desiredAmenities.stream()
-                .map(String::trim)
-                .map(String::toLowerCase)
-                .collect(Collectors.toSet());
+        double idealPrice = (prefs.minPriceCents + prefs.maxPriceCents) / 2.0;
+        double priceRange = prefs.maxPriceCents - prefs.minPriceCents;
 
-        propertyAmenities = propertyAmenities.stream()
-                .map(String::trim)
-                .map(String::toLowerCase)
-                .collect(Collectors.toSet());
-
-        // Jaccard Similarity
-        Set<String> intersection = new HashSet<>(desiredAmenities);
-        intersection.retainAll(propertyAmenities);
+        if (priceRange <= 0) {
+            return priceCents == idealPrice ? 1.0 : 0.0;
+        }
 
-        Set<String> union = new HashSet<>(desiredAmenities);
-        union.addAll(propertyAmenities);
+        double normalizedDistance = Math.abs(priceCents - idealPrice) / priceRange;
 
-        return union.isEmpty() ? 0.5 : (double) intersection.size() / union.size();
+        double sigma = 0.5;
+        return Math.exp(-(normalizedDistance * normalizedDistance) / (2 * sigma * sigma));
     }
 
     /**
-     * Score de tamaño: premia propiedades con área >= área mínima
+     * Score de ubicación: matching de ciudad y barrio por id del diccionario
      */
-    private double calculateSizeScore(Property property, UserPreferences preferences) {
-        if (preferences.getMinArea() == null || property.getArea() == null) {
+    private double calculateLocationScore(int cityId, int neighborhoodId, CompiledPreferences prefs) {
+        double score = 0.0;
+
+        if (prefs.hasCity) {
+            if (prefs.matchesCity(cityId)) {
+                score += 0.6;
+            }
+        } else {
+            score += 0.3;
+        }
+
+        if (prefs.hasNeighborhoods) {
+            if (neighborhoodId >= 0 && Arrays.binarySearch(prefs.neighborhoodIds, neighborhoodId) >= 0) {
+                score += 0.4;
+            }
+        } else {
+            score += 0.2;
+        }
+
+        return Math.min(score, 1.0);
+    }
+
+    private double calculateAmenitiesScore(PropertyCatalogSnapshot snapshot, int i, CompiledPreferences prefs) {
+        if (!prefs.hasAmenities) {
             return 0.5;
         }
+        return snapshot.amenityJaccard(i, prefs.desiredAmenityMask, prefs.unknownAmenities);
+    }
 
-        double area = property.getArea();
-        double minArea = preferences.getMinArea();
+    private double calculateSizeScore(double area, CompiledPreferences prefs) {
+        if (!prefs.hasMinArea() || Double.isNaN(area)) {
+            return 0.5;
+        }
 
+        double minArea = prefs.minArea;
         if (area < minArea) {
-            return 0.0; // No cumple el mínimo
+            return 0.0;
         }
 
-        // Score = 1.0 si tiene exactamente el área mínima
-        // Score > 1.0 si tiene más (limitado a 1.0)
-        // Bonus de hasta 20% por área extra
         double bonus = Math.min((area - minArea) / minArea, 0.2);
         return Math.min(1.0 + bonus, 1.0);
     }
 
-    /**
-     * Score de tipo: match exacto o relacionado
-     */
-    private double calculateTypeScore(Property property, UserPreferences preferences) {
-        if (preferences.getPreferredType() == null) {
+    private double calculateTypeScore(int typeOrdinal, CompiledPreferences prefs) {
+        if (prefs.preferredTypeOrdinal < 0) {
             return 0.5;
         }
-
-        // Match exacto
-        if (property.getType() == preferences.getPreferredType()) {
-            return 1.0;
-        }
-
-        // Sin match
-        return 0.3;
+        return typeOrdinal == prefs.preferredTypeOrdinal ? 1.0 : 0.3;
     }
 
     @Override
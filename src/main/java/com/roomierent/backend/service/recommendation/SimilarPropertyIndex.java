@@ -0,0 +1,242 @@
+package com.roomierent.backend.service.recommendation;
+
+import com.roomierent.backend.event.CatalogSnapshotRefreshedEvent;
+import com.roomierent.backend.util.CosineKernel;
+import com.roomierent.backend.util.SimilarityCalculator;
+import com.roomierent.backend.util.datastructures.FeatureMatrix;
+import com.roomierent.backend.util.datastructures.LshIndex;
+import com.roomierent.backend.util.datastructures.PropertyCatalogSnapshot;
+import com.roomierent.backend.util.datastructures.PropertyFeatures;
+import com.roomierent.backend.util.datastructures.PropertyGraph;
+import com.roomierent.backend.util.datastructures.TopKSelector;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Índice de vecinos aproximados para "propiedades similares" sin el grafo de todos los pares
+ *
+ * Cada propiedad se representa con su vector de características normalizado (PropertyFeatures,
+ * tomado del snapshot de catálogo) más su ubicación codificada (lat/lon en grados; el LSH
+ * normaliza la escala de cada dimensión antes de proyectar).
+ * La consulta toma los candidatos del LSH y los re-ordena con la similitud exacta:
+ * el coseno de todos los candidatos se calcula en lote con el CosineKernel (el mismo
+ * que usa PropertyGraphBuilder) y el resto de la similitud por par
+ */
+@Service
+public class SimilarPropertyIndex {
+
+    private static final int FEATURE_DIMENSIONS = SimilarityCalculator.FEATURE_DIMENSIONS;
+    private static final int DIMENSIONS = FEATURE_DIMENSIONS + 2;
+
+    private final PropertySnapshotService snapshotService;
+    private final int tables;
+    private final int hashesPerTable;
+    private final double bucketWidth;
+    private final long seed;
+    private final CosineKernel cosineKernel;
+    private final ExecutorService rebuildExecutor;
+    private final AtomicBoolean rebuildPending = new AtomicBoolean(false);
+
+    private volatile IndexState state;
+
+    public SimilarPropertyIndex(
+            PropertySnapshotService snapshotService,
+            @Value("${recommendation.ann.tables:8}") int tables,
+            @Value("${recommendation.ann.hashes-per-table:4}") int hashesPerTable,
+            @Value("${recommendation.ann.bucket-width:4.0}") double bucketWidth,
+            @Value("${recommendation.ann.seed:42}") long seed) {
+
+        this.snapshotService = snapshotService;
+        this.tables = tables;
+        this.hashesPerTable = hashesPerTable;
+        this.bucketWidth = bucketWidth;
+        this.seed = seed;
+        this.cosineKernel = CosineKernel.best();
+        this.rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "similar-index-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Top-k propiedades más similares a la dada (aproximado: solo evalúa los candidatos del LSH)
+     * Construye el índice la primera vez (O(n), sin comparar todos los pares)
+     */
+    public List<Long> findSimilar(Long propertyId, double minSimilarity, int limit) {
+        IndexState current = state;
+        if (current == null) {
+            current = buildIfAbsent();
+        }
+
+        Integer target = current.indexById.get(propertyId);
+        if (target == null) {
+            return new ArrayList<>();
+        }
+
+        int[] candidates = current.index.candidates(current.vectorOf(target));
+        PropertyFeatures base = current.properties.get(target);
+        TopKSelector top = new TopKSelector(limit, candidates.length);
+
+        float[] query = new float[FEATURE_DIMENSIONS];
+        float[] cosines = new float[candidates.length];
+        current.features.copyRow(target, query);
+        cosineKernel.similarities(query, current.features, candidates, candidates.length, cosines);
+
+        for (int k = 0; k < candidates.length; k++) {
+            int candidate = candidates[k];
+            if (candidate == target) {
+                continue;
+            }
+            double similarity = PropertyGraph.calculateSimilarity(base, current.properties.get(candidate), cosines[k]);
+            if (similarity >= minSimilarity) {
+                top.offer(similarity, candidate);
+            }
+        }
+
+        top.sortDescending();
+
+        List<Long> ids = new ArrayList<>(top.size());
+        for (int rank = 0; rank < top.size(); rank++) {
+            ids.add(current.properties.get(top.indexAt(rank)).getId());
+        }
+
+        System.out.println("   🧭 ANN: " + candidates.length + " candidatos evaluados de " +
+                current.properties.size());
+
+        return ids;
+    }
+
+    /**
+     * Reconstruye el índice con los features del snapshot de catálogo (sin consultar la base)
+     */
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+
+        PropertyCatalogSnapshot snapshot = snapshotService.getSnapshot();
+        List<PropertyFeatures> properties = snapshot.getFeatureList();
+
+        IndexState rebuilt = new IndexState(properties, encode(properties));
+        this.state = rebuilt;
+
+        System.out.println("🧭 Índice ANN construido: " + properties.size() + " propiedades en " +
+                (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Estadísticas del índice (vacío si aún no se construye)
+     */
+    public Map<String, Object> stats() {
+        IndexState current = state;
+        return current == null ? new LinkedHashMap<>() : current.index.stats();
+    }
+
+    /**
+     * Solo se reconstruye si el índice ya está en uso (con cada snapshot nuevo)
+     */
+    @EventListener
+    public void onCatalogRefreshed(CatalogSnapshotRefreshedEvent event) {
+        if (state != null && rebuildPending.compareAndSet(false, true)) {
+            rebuildExecutor.execute(() -> {
+                rebuildPending.set(false);
+                try {
+                    rebuild();
+                } catch (Exception e) {
+                    System.err.println("❌ Error reconstruyendo índice ANN: " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    private synchronized IndexState buildIfAbsent() {
+        if (state == null) {
+            rebuild();
+        }
+        return state;
+    }
+
+    /**
+     * Vectores aplanados: características (7) + latitud y longitud proyectadas
+     * Las propiedades sin coordenadas usan el centro de su ciudad
+     */
+    private float[] encode(List<PropertyFeatures> properties) {
+        Map<Integer, double[]> cityCenters = new HashMap<>();
+        for (PropertyFeatures property : properties) {
+            if (property.hasCoordinates()) {
+                double[] center = cityCenters.computeIfAbsent(property.getCityId(), key -> new double[3]);
+                center[0] += property.getLatitude();
+                center[1] += property.getLongitude();
+                center[2]++;
+            }
+        }
+
+        float[] vectors = new float[properties.size() * DIMENSIONS];
+
+        for (int i = 0; i < properties.size(); i++) {
+            PropertyFeatures property = properties.get(i);
+            int offset = i * DIMENSIONS;
+
+            double[] features = property.getVector();
+            for (int d = 0; d < FEATURE_DIMENSIONS; d++) {
+                vectors[offset + d] = (float) features[d];
+            }
+
+            double latitude;
+            double longitude;
+            if (property.hasCoordinates()) {
+                latitude = property.getLatitude();
+                longitude = property.getLongitude();
+            } else {
+                double[] center = cityCenters.get(property.getCityId());
+                latitude = center == null ? 0.0 : center[0] / center[2];
+                longitude = center == null ? 0.0 : center[1] / center[2];
+            }
+
+            // Proyección equirectangular: un grado de longitud se acorta con la latitud
+            vectors[offset + FEATURE_DIMENSIONS] = (float) latitude;
+            vectors[offset + FEATURE_DIMENSIONS + 1] = (float) (longitude * Math.cos(Math.toRadians(latitude)));
+        }
+
+        return vectors;
+    }
+
+    private final class IndexState {
+
+        private final List<PropertyFeatures> properties;
+        private final Map<Long, Integer> indexById;
+        private final float[] vectors;
+        // Vectores normalizados por dimensión para el kernel de coseno
+        private final FeatureMatrix features;
+        private final LshIndex index;
+
+        private IndexState(List<PropertyFeatures> properties, float[] vectors) {
+            this.properties = properties;
+            this.vectors = vectors;
+            this.features = new FeatureMatrix(FEATURE_DIMENSIONS, properties.size());
+            for (int i = 0; i < properties.size(); i++) {
+                features.setRow(i, properties.get(i).getUnitVector());
+            }
+            this.indexById = new HashMap<>(properties.size() * 2);
+            for (int i = 0; i < properties.size(); i++) {
+                indexById.put(properties.get(i).getId(), i);
+            }
+            this.index = LshIndex.build(vectors, DIMENSIONS, tables, hashesPerTable, bucketWidth, seed);
+        }
+
+        private float[] vectorOf(int i) {
+            return Arrays.copyOfRange(vectors, i * DIMENSIONS, (i + 1) * DIMENSIONS);
+        }
+    }
+}
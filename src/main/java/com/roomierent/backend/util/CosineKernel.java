@@ -0,0 +1,45 @@
+package com.roomierent.backend.util;
+
+import com.roomierent.backend.util.datastructures.FeatureMatrix;
+
+/**
+ * Similitud de coseno de una consulta contra un rango contiguo de vectores normalizados
+ * o contra un subconjunto de filas dado por índices
+ * Las implementaciones no crean objetos: escriben en el arreglo de salida
+ */
+public interface CosineKernel {
+
+    String VECTOR_KERNEL_CLASS = "com.roomierent.backend.util.VectorCosineKernel";
+
+    /**
+     * out[j] = coseno(query, fila j) para j en [from, to)
+     *
+     * @param query vector normalizado de la consulta (longitud = dimensiones)
+     */
+    void similarities(float[] query, FeatureMatrix matrix, int from, int to, float[] out);
+
+    /**
+     * out[k] = coseno(query, fila rows[k]) para k en [0, count)
+     * Para cuando solo algunas filas necesitan el coseno (p. ej. las que sobreviven a una poda)
+     */
+    void similarities(float[] query, FeatureMatrix matrix, int[] rows, int count, float[] out);
+
+    String getName();
+
+    /**
+     * Kernel SIMD (jdk.incubator.vector) si está compilado y el módulo está cargado; si no, el escalar
+     * VectorCosineKernel vive en src/main/java-vector y solo se compila con el perfil
+     * vector-api (mvn -Pvector-api), que además arranca la JVM con --add-modules jdk.incubator.vector.
+     * Se carga por reflexión para que el build por defecto no dependa del módulo incubado
+     */
+    static CosineKernel best() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (CosineKernel) Class.forName(VECTOR_KERNEL_CLASS).getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // Sin el perfil vector-api o módulo no utilizable: se usa la versión escalar
+            }
+        }
+        return new ScalarCosineKernel();
+    }
+}
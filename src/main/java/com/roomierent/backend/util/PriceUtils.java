@@ -0,0 +1,30 @@
+package com.roomierent.backend.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Conversión de precios a unidades mínimas (centavos) para cálculos con primitivos
+ * BigDecimal queda solo en la API y la persistencia; scoring y grafo trabajan con long
+ */
+public final class PriceUtils {
+
+    private static final long[] SCALE_FACTORS = {100L, 10L, 1L};
+    // Con hasta 16 dígitos el valor en centavos cabe en un long sin desbordar
+    private static final int MAX_FAST_PRECISION = 16;
+
+    private PriceUtils() {
+    }
+
+    /**
+     * Convierte un precio a centavos redondeando al más cercano
+     * Los precios con 0 a 2 decimales (el caso normal) se convierten sin redondeo ni escalado
+     */
+    public static long toCents(BigDecimal price) {
+        int scale = price.scale();
+        if (scale >= 0 && scale <= 2 && price.precision() <= MAX_FAST_PRECISION) {
+            return price.unscaledValue().longValue() * SCALE_FACTORS[scale];
+        }
+        return price.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+    }
+}
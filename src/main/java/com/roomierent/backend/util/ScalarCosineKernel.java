@@ -0,0 +1,48 @@
+package com.roomierent.backend.util;
+
+import com.roomierent.backend.util.datastructures.FeatureMatrix;
+
+/**
+ * Kernel de coseno escalar (respaldo cuando la Vector API no está disponible)
+ */
+public final class ScalarCosineKernel implements CosineKernel {
+
+    @Override
+    public void similarities(float[] query, FeatureMatrix matrix, int from, int to, float[] out) {
+        float[] data = matrix.getData();
+        int stride = matrix.getStride();
+        int dimensions = matrix.getDimensions();
+
+        for (int j = from; j < to; j++) {
+            out[j] = 0f;
+        }
+        for (int d = 0; d < dimensions; d++) {
+            float q = query[d];
+            int base = d * stride;
+            for (int j = from; j < to; j++) {
+                out[j] += q * data[base + j];
+            }
+        }
+    }
+
+    @Override
+    public void similarities(float[] query, FeatureMatrix matrix, int[] rows, int count, float[] out) {
+        float[] data = matrix.getData();
+        int stride = matrix.getStride();
+        int dimensions = matrix.getDimensions();
+
+        for (int k = 0; k < count; k++) {
+            int row = rows[k];
+            float sum = 0f;
+            for (int d = 0; d < dimensions; d++) {
+                sum += query[d] * data[d * stride + row];
+            }
+            out[k] = sum;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "escalar";
+    }
+}
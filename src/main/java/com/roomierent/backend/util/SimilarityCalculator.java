@@ -1,9 +1,11 @@
 package com.roomierent.backend.util;
 
 import com.roomierent.backend.model.entity.Property;
+import com.roomierent.backend.model.entity.PropertyType;
+import com.roomierent.backend.util.datastructures.AmenityDictionary;
+import com.roomierent.backend.util.datastructures.PropertyFeatures;
 
 import java.math.BigDecimal;
-import java.util.*;
 
 /**
  * Utilidades para calcular similitud entre propiedades
@@ -11,42 +13,70 @@ import java.util.*;
  */
 public class SimilarityCalculator {
 
+    // Dimensión del vector de características
+    public static final int FEATURE_DIMENSIONS = 7;
+
     /**
      * Calcula la similitud de coseno entre dos propiedades
      * Retorna un valor entre 0 (no similares) y 1 (idénticas)
+     * Los vectores ya vienen normalizados: basta con el producto punto
      */
-    public static double calculateCosineSimilarity(Property p1, Property p2) {
-        // Crear vectores de características
-        double[] vector1 = createFeatureVector(p1);
-        double[] vector2 = createFeatureVector(p2);
+    public static double calculateCosineSimilarity(PropertyFeatures p1, PropertyFeatures p2) {
+        double[] vector1 = p1.getUnitVector();
+        double[] vector2 = p2.getUnitVector();
 
-        // Calcular similitud de coseno
-        return cosineSimilarity(vector1, vector2);
+        double dotProduct = 0.0;
+        for (int i = 0; i < vector1.length; i++) {
+            dotProduct += vector1[i] * vector2[i];
+        }
+        return dotProduct;
     }
 
     /**
      * Crea un vector de características normalizadas para una propiedad
      */
-    private static double[] createFeatureVector(Property property) {
-        double[] vector = new double[7];
+    public static double[] createFeatureVector(Property property) {
+        return createFeatureVector(
+                property.getPrice(),
+                property.getBedrooms(),
+                property.getBathrooms(),
+                property.getArea(),
+                property.getType(),
+                property.getAmenities()
+        );
+    }
+
+    /**
+     * Igual que createFeatureVector(Property) pero desde las columnas
+     * (lo usa el snapshot de catálogo, que no crea entidades)
+     */
+    public static double[] createFeatureVector(
+            BigDecimal price,
+            Integer bedrooms,
+            Integer bathrooms,
+            Double area,
+            PropertyType type,
+            String amenities
+    ) {
+        double[] vector = new double[FEATURE_DIMENSIONS];
 
         // Feature 0: Precio normalizado (0-1)
-        vector[0] = normalizePrice(property.getPrice());
+        vector[0] = normalizePrice(price);
 
         // Feature 1: Número de habitaciones normalizado
-        vector[1] = normalizeValue(property.getBedrooms(), 1, 10);
+        vector[1] = normalizeValue(bedrooms, 1, 10);
 
         // Feature 2: Número de baños normalizado
-        vector[2] = normalizeValue(property.getBathrooms(), 1, 5);
+        vector[2] = normalizeValue(bathrooms, 1, 5);
 
         // Feature 3: Área normalizada
-        vector[3] = normalizeValue(property.getArea(), 20, 500);
+        vector[3] = normalizeValue(area, 20, 500);
 
         // Feature 4: Tipo de propiedad (one-hot encoding simplificado)
-        vector[4] = property.getType().ordinal() / 3.0; // 0, 0.33, 0.66, 1.0
+        vector[4] = type.ordinal() / 3.0; // 0, 0.33, 0.66, 1.0
 
         // Feature 5: Número de amenities normalizado
-        vector[5] = normalizeValue(countAmenities(property), 0, 15);
+        vector[5] = normalizeValue(countAmenities(amenities), 0, 15);
 
         // Feature 6: Factor de ubicación (misma ciudad = 1, diferente = 0)
         vector[6] = 1.0; // Se ajusta en el cálculo de similitud
@@ -54,38 +84,17 @@ public class SimilarityCalculator {
         return vector;
     }
 
-    /**
-     * Calcula similitud de coseno entre dos vectores
-     */
-    private static double cosineSimilarity(double[] v1, double[] v2) {
-        double dotProduct = 0.0;
-        double norm1 = 0.0;
-        double norm2 = 0.0;
-
-        for (int i = 0; i < v1.length; i++) {
-            dotProduct += v1[i] * v2[i];
-            norm1 += v1[i] * v1[i];
-            norm2 += v2[i] * v2[i];
-        }
-
-        if (norm1 == 0.0 || norm2 == 0.0) {
-            return 0.0;
-        }
-
-        return dotProduct / (Math.sqrt(norm1) * Math.sqrt(norm2));
-    }
-
     /**
      * Normaliza el precio a un rango 0-1
      */
     private static double normalizePrice(BigDecimal price) {
         if (price == null) return 0.5;
 
-        double priceValue = price.doubleValue();
-        double minPrice = 100000;  // $100k
-        double maxPrice = 10000000; // $10M
+        long priceCents = PriceUtils.toCents(price);
+        double minPriceCents = 10_000_000;     // $100k
+        double maxPriceCents = 1_000_000_000;  // $10M
 
-        return normalizeValue(priceValue, minPrice, maxPrice);
+        return normalizeValue(priceCents, minPriceCents, maxPriceCents);
     }
 
     /**
@@ -98,40 +107,34 @@ public class SimilarityCalculator {
     }
 
     /**
-     * Cuenta el número de amenities de una propiedad
+     * Cuenta el número de amenities (texto separado por comas)
      */
-    private static int countAmenities(Property property) {
-        if (property.getAmenities() == null || property.getAmenities().isEmpty()) {
+    private static int countAmenities(String amenities) {
+        if (amenities == null || amenities.isEmpty()) {
             return 0;
         }
-        return property.getAmenities().split(",").length;
+        return amenities.split(",").length;
     }
 
     /**
      * Calcula similitud considerando ubicación
      */
-    public static double calculateLocationSimilarity(Property p1, Property p2) {
+    public static double calculateLocationSimilarity(PropertyFeatures p1, PropertyFeatures p2) {
         double similarity = 0.0;
 
         // Misma ciudad: +0.5
-        if (p1.getCity() != null && p1.getCity().equalsIgnoreCase(p2.getCity())) {
+        if (p1.getCityId() >= 0 && p1.getCityId() == p2.getCityId()) {
             similarity += 0.5;
         }
 
         // Mismo barrio: +0.5
-        if (p1.getNeighborhood() != null &&
-                p1.getNeighborhood().equalsIgnoreCase(p2.getNeighborhood())) {
+        if (p1.getNeighborhoodId() >= 0 && p1.getNeighborhoodId() == p2.getNeighborhoodId()) {
             similarity += 0.5;
         }
 
         // Si tienen coordenadas, calcular distancia euclidiana
-        if (p1.getLatitude() != null && p1.getLongitude() != null &&
-                p2.getLatitude() != null && p2.getLongitude() != null) {
-
-            double distance = calculateDistance(
-                    p1.getLatitude(), p1.getLongitude(),
-                    p2.getLatitude(), p2.getLongitude()
-            );
+        if (p1.hasCoordinates() && p2.hasCoordinates()) {
+            double distance = calculateDistance(p1, p2);
 
             // Distancia < 1km = muy cercanas
             if (distance < 1.0) {
@@ -146,20 +149,17 @@ public class SimilarityCalculator {
 
     /**
      * Calcula distancia en kilómetros entre dos coordenadas
-     * Usa la fórmula de Haversine
+     * Usa la fórmula de Haversine (radianes y cosenos precalculados)
      */
-    private static double calculateDistance(
-            Double lat1, Double lon1,
-            Double lat2, Double lon2
-    ) {
+    private static double calculateDistance(PropertyFeatures p1, PropertyFeatures p2) {
         final int EARTH_RADIUS = 6371; // Radio de la Tierra en km
 
-        double latDistance = Math.toRadians(lat2 - lat1);
-        double lonDistance = Math.toRadians(lon2 - lon1);
+        double latDistance = p2.getLatitudeRadians() - p1.getLatitudeRadians();
+        double lonDistance = p2.getLongitudeRadians() - p1.getLongitudeRadians();
 
-        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
+        double sinLat = Math.sin(latDistance / 2);
+        double sinLon = Math.sin(lonDistance / 2);
+        double a = sinLat * sinLat + p1.getCosLatitude() * p2.getCosLatitude() * sinLon * sinLon;
 
         double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
 
@@ -168,42 +168,21 @@ public class SimilarityCalculator {
 
     /**
      * Calcula similitud de amenities usando Jaccard Similarity
+     * (popcount sobre las máscaras de bits del diccionario global)
      */
-    public static double calculateAmenitiesSimilarity(Property p1, Property p2) {
-        Set<String> amenities1 = getAmenitiesSet(p1);
-        Set<String> amenities2 = getAmenitiesSet(p2);
+    public static double calculateAmenitiesSimilarity(PropertyFeatures p1, PropertyFeatures p2) {
+        int count1 = p1.getAmenityCount();
+        int count2 = p2.getAmenityCount();
 
-        if (amenities1.isEmpty() && amenities2.isEmpty()) {
+        if (count1 == 0 && count2 == 0) {
             return 1.0; // Ambas sin amenities = similares
         }
 
-        if (amenities1.isEmpty() || amenities2.isEmpty()) {
+        if (count1 == 0 || count2 == 0) {
             return 0.0;
         }
 
         // Jaccard Similarity: |A ∩ B| / |A ∪ B|
-        Set<String> intersection = new HashSet<>(amenities1);
-        intersection.retainAll(amenities2);
-
-        Set<String> union = new HashSet<>(amenities1);
-        union.addAll(amenities2);
-
-        return (double) intersection.size() / union.size();
-    }
-
-    /**
-     * Convierte amenities de string a Set
-     */
-    private static Set<String> getAmenitiesSet(Property property) {
-        Set<String> amenities = new HashSet<>();
-
-        if (property.getAmenities() != null && !property.getAmenities().isEmpty()) {
-            String[] parts = property.getAmenities().split(",");
-            for (String amenity : parts) {
-                amenities.add(amenity.trim().toLowerCase());
-            }
-        }
-
-        return amenities;
+        return AmenityDictionary.jaccard(p1.getAmenityMask(), p2.getAmenityMask());
     }
-}
\ No newline at end of file
+}
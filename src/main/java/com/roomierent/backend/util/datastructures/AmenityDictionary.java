@@ -0,0 +1,115 @@
+package com.roomierent.backend.util.datastructures;
+
+/**
+ * Diccionario global de amenities: cada nombre normalizado ocupa una posición de bit
+ * Permite representar los amenities como máscaras long[] y calcular Jaccard con popcount
+ *
+ * Solo las propiedades registran amenities nuevos (maskOf); las preferencias de usuario
+ * usan las búsquedas que no registran (knownMaskOf, bitOf) para que texto arbitrario
+ * no haga crecer el diccionario ni las máscaras de todo el catálogo
+ */
+public final class AmenityDictionary {
+
+    private static final long[] EMPTY_MASK = new long[0];
+
+    private AmenityDictionary() {
+    }
+
+    /**
+     * Posición de bit de un amenity sin registrarlo (-1 si está vacío o no existe)
+     */
+    public static int bitOf(String amenity) {
+        return TermDictionary.AMENITIES.idOf(amenity);
+    }
+
+    /**
+     * Construye la máscara de bits de una lista de amenities separada por comas,
+     * registrando los nuevos (solo para propiedades)
+     */
+    public static long[] maskOf(String commaSeparated) {
+        return toMask(TermDictionary.AMENITIES.internAll(commaSeparated));
+    }
+
+    /**
+     * Máscara solo con los amenities ya registrados; los desconocidos se omiten
+     * (ninguna propiedad los tiene, se cuentan aparte con unknownCount)
+     */
+    public static long[] knownMaskOf(String commaSeparated) {
+        return toMask(TermDictionary.AMENITIES.idsOf(commaSeparated));
+    }
+
+    /**
+     * Número de amenities distintos de la lista que no están en el diccionario
+     */
+    public static int unknownCount(String commaSeparated) {
+        return TermDictionary.AMENITIES.unknownCount(commaSeparated);
+    }
+
+    private static long[] toMask(int[] bits) {
+        if (bits.length == 0) {
+            return EMPTY_MASK;
+        }
+
+        // Los ids vienen ordenados: el último define el tamaño de la máscara
+        long[] mask = new long[(bits[bits.length - 1] >>> 6) + 1];
+        for (int bit : bits) {
+            mask[bit >>> 6] |= 1L << bit;
+        }
+        return mask;
+    }
+
+    /**
+     * Número de palabras long necesarias para cubrir todo el diccionario actual
+     */
+    public static int wordCount() {
+        return (TermDictionary.AMENITIES.size() + 63) >>> 6;
+    }
+
+    /**
+     * Número de amenities presentes en la máscara
+     */
+    public static int count(long[] mask) {
+        return count(mask, 0, mask.length);
+    }
+
+    public static int count(long[] mask, int offset, int length) {
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            count += Long.bitCount(mask[offset + i]);
+        }
+        return count;
+    }
+
+    /**
+     * Jaccard Similarity: popcount(a & b) / popcount(a | b)
+     * Retorna NaN si ambas máscaras están vacías para que cada llamador defina el caso neutro
+     */
+    public static double jaccard(long[] a, long[] b) {
+        return jaccard(a, 0, a.length, b, 0, b.length);
+    }
+
+    public static double jaccard(long[] a, int aOffset, int aLength,
+                                 long[] b, int bOffset, int bLength) {
+        return jaccard(a, aOffset, aLength, b, bOffset, bLength, 0);
+    }
+
+    /**
+     * Jaccard sumando a la unión extraUnion elementos que están solo en uno de los lados
+     * (los amenities deseados que no existen en el diccionario)
+     */
+    public static double jaccard(long[] a, int aOffset, int aLength,
+                                 long[] b, int bOffset, int bLength, int extraUnion) {
+        int intersection = 0;
+        int union = extraUnion;
+        int longest = Math.max(aLength, bLength);
+
+        for (int i = 0; i < longest; i++) {
+            long wordA = i < aLength ? a[aOffset + i] : 0L;
+            long wordB = i < bLength ? b[bOffset + i] : 0L;
+            intersection += Long.bitCount(wordA & wordB);
+            union += Long.bitCount(wordA | wordB);
+        }
+
+        return union == 0 ? Double.NaN : (double) intersection / union;
+    }
+}
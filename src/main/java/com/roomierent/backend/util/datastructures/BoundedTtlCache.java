@@ -0,0 +1,103 @@
+package com.roomierent.backend.util.datastructures;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caché LRU acotada por tamaño y con expiración (TTL) por entrada
+ * Lleva contadores de aciertos, fallos y desalojos para poder dimensionarla
+ */
+public final class BoundedTtlCache<K, V> {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, CacheEntry<V>> entries;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public BoundedTtlCache(int maxSize, long ttl, TimeUnit unit) {
+        this.maxSize = Math.max(maxSize, 1);
+        this.ttlNanos = unit.toNanos(ttl);
+
+        // accessOrder = true: el primer elemento es siempre el menos usado recientemente
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, CacheEntry<V>> eldest) {
+                if (size() > BoundedTtlCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Retorna el valor asociado a la clave (null si no existe o ya expiró)
+     */
+    public synchronized V get(K key) {
+        CacheEntry<V> entry = entries.get(key);
+
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+
+        if (System.nanoTime() - entry.createdAt > ttlNanos) {
+            entries.remove(key);
+            evictions++;
+            misses++;
+            return null;
+        }
+
+        hits++;
+        return entry.value;
+    }
+
+    public synchronized void put(K key, V value) {
+        entries.put(key, new CacheEntry<>(value, System.nanoTime()));
+    }
+
+    public synchronized void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Estadísticas de uso: tamaño, aciertos, fallos, tasa de aciertos y desalojos
+     */
+    public synchronized Map<String, Object> stats() {
+        long requests = hits + misses;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", entries.size());
+        stats.put("maxSize", maxSize);
+        stats.put("ttlSeconds", TimeUnit.NANOSECONDS.toSeconds(ttlNanos));
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("hitRate", requests == 0 ? 0.0 : (double) hits / requests);
+        stats.put("evictions", evictions);
+        return stats;
+    }
+
+    private static final class CacheEntry<V> {
+
+        private final V value;
+        private final long createdAt;
+
+        private CacheEntry(V value, long createdAt) {
+            this.value = value;
+            this.createdAt = createdAt;
+        }
+    }
+}
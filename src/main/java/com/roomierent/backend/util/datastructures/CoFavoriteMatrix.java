@@ -0,0 +1,299 @@
+package com.roomierent.backend.util.datastructures;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Matriz dispersa item-item de co-favoritos para filtrado colaborativo
+ *
+ * Cada propiedad tiene una fila con los ítems que comparten usuario con ella
+ * (índices ordenados + conteos en arreglos primitivos) y su top-M de vecinos por
+ * similitud coseno sobre los usuarios: co(i, j) / sqrt(freq(i) · freq(j)).
+ * Los favoritos de cada usuario se guardan para que agregar o quitar uno sea idempotente.
+ * Un cambio en el ítem X cambia freq(X) y con eso la similitud de X con todos sus
+ * vecinos: se recalcula el top-M de X y de cada fila que contiene a X, así el estado
+ * incremental queda igual al de una reconstrucción completa. Cuesta O(grado(X) · fila)
+ *
+ * No es thread-safe: el dueño sincroniza lecturas y escrituras
+ */
+public final class CoFavoriteMatrix {
+
+    private static final int[] NO_ITEMS = new int[0];
+
+    private final int maxNeighbors;
+
+    // Ítems internados: id de propiedad <-> índice denso
+    private final Map<Long, Integer> itemIndex = new HashMap<>();
+    private long[] itemIds = new long[16];
+    private int[] frequency = new int[16];
+    private int itemCount;
+
+    // Fila dispersa de cada ítem: vecinos ordenados por índice y sus conteos
+    private int[][] rowItems = new int[16][];
+    private int[][] rowCounts = new int[16][];
+    private int[] rowSize = new int[16];
+
+    // Top-M de cada ítem, de mayor a menor similitud
+    private int[][] topItems = new int[16][];
+
+    // Favoritos de cada usuario (índices ordenados)
+    private final Map<Long, int[]> userItems = new HashMap<>();
+    private long nonZeroEntries;
+
+    public CoFavoriteMatrix(int maxNeighbors) {
+        this.maxNeighbors = Math.max(maxNeighbors, 1);
+    }
+
+    /**
+     * Carga pares (usuario, propiedad) en bloque y calcula todos los top-M al final
+     */
+    public void addAll(long[] userIds, long[] propertyIds, int count) {
+        for (int k = 0; k < count; k++) {
+            add(userIds[k], propertyIds[k], false);
+        }
+        for (int item = 0; item < itemCount; item++) {
+            refreshTop(item);
+        }
+    }
+
+    /**
+     * Registra un favorito; retorna false si el usuario ya lo tenía
+     */
+    public boolean add(long userId, long propertyId) {
+        return add(userId, propertyId, true);
+    }
+
+    /**
+     * Quita un favorito; retorna false si el usuario no lo tenía
+     */
+    public boolean remove(long userId, long propertyId) {
+        Integer item = itemIndex.get(propertyId);
+        int[] current = userItems.getOrDefault(userId, NO_ITEMS);
+        int position = item == null ? -1 : Arrays.binarySearch(current, item);
+        if (position < 0) {
+            return false;
+        }
+
+        int[] remaining = new int[current.length - 1];
+        System.arraycopy(current, 0, remaining, 0, position);
+        System.arraycopy(current, position + 1, remaining, position, remaining.length - position);
+        if (remaining.length == 0) {
+            userItems.remove(userId);
+        } else {
+            userItems.put(userId, remaining);
+        }
+
+        frequency[item]--;
+        for (int other : remaining) {
+            increment(item, other, -1);
+            increment(other, item, -1);
+        }
+
+        refreshAround(item, remaining);
+        return true;
+    }
+
+    /**
+     * Suma las filas top-M de los favoritos del usuario: score(q) = Σ sim(f, q)
+     * Excluye lo que ya es favorito. Costo O(|favoritos| · M), independiente del catálogo
+     *
+     * @return propiedades candidatas con su score (vacío si el usuario no tiene favoritos)
+     */
+    public Map<Long, Double> scoreForUser(long userId) {
+        int[] favorites = userItems.getOrDefault(userId, NO_ITEMS);
+        Map<Long, Double> scores = new HashMap<>(favorites.length * maxNeighbors * 2);
+
+        for (int favorite : favorites) {
+            int[] neighbors = topItems[favorite];
+            if (neighbors == null) {
+                continue;
+            }
+            for (int neighbor : neighbors) {
+                if (Arrays.binarySearch(favorites, neighbor) >= 0) {
+                    continue;
+                }
+                scores.merge(itemIds[neighbor], similarity(favorite, neighbor), Double::sum);
+            }
+        }
+        return scores;
+    }
+
+    public boolean hasFavorites(long userId) {
+        return userItems.containsKey(userId);
+    }
+
+    /**
+     * Usuarios con al menos un favorito
+     */
+    public Set<Long> userIds() {
+        return Collections.unmodifiableSet(userItems.keySet());
+    }
+
+    /**
+     * IDs de las propiedades favoritas del usuario, ordenados (vacío si no tiene)
+     */
+    public long[] favoritesOf(long userId) {
+        int[] items = userItems.getOrDefault(userId, NO_ITEMS);
+        long[] ids = new long[items.length];
+        for (int k = 0; k < items.length; k++) {
+            ids[k] = itemIds[items[k]];
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    /**
+     * Tamaño de la matriz (ítems, usuarios, entradas no nulas)
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("items", itemCount);
+        stats.put("users", userItems.size());
+        stats.put("nonZeroEntries", nonZeroEntries);
+        stats.put("maxNeighbors", maxNeighbors);
+        return stats;
+    }
+
+    private boolean add(long userId, long propertyId, boolean refresh) {
+        int item = internItem(propertyId);
+        int[] current = userItems.getOrDefault(userId, NO_ITEMS);
+        int position = Arrays.binarySearch(current, item);
+        if (position >= 0) {
+            return false;
+        }
+
+        frequency[item]++;
+        for (int other : current) {
+            increment(item, other, 1);
+            increment(other, item, 1);
+        }
+
+        int insertAt = -position - 1;
+        int[] updated = new int[current.length + 1];
+        System.arraycopy(current, 0, updated, 0, insertAt);
+        updated[insertAt] = item;
+        System.arraycopy(current, insertAt, updated, insertAt + 1, current.length - insertAt);
+        userItems.put(userId, updated);
+
+        if (refresh) {
+            refreshAround(item, current);
+        }
+        return true;
+    }
+
+    /**
+     * Recalcula el top-M del ítem cuya frecuencia cambió y el de cada fila que lo
+     * contiene (su similitud con todos ellos cambió), más las filas de coFavorites:
+     * los demás favoritos del usuario, cuyo conteo con el ítem cambió (al quitar,
+     * el ítem pudo salir de su fila)
+     */
+    private void refreshAround(int item, int[] coFavorites) {
+        refreshTop(item);
+        for (int k = 0; k < rowSize[item]; k++) {
+            refreshTop(rowItems[item][k]);
+        }
+        for (int other : coFavorites) {
+            if (Arrays.binarySearch(rowItems[item], 0, rowSize[item], other) < 0) {
+                refreshTop(other);
+            }
+        }
+    }
+
+    private int internItem(long propertyId) {
+        Integer existing = itemIndex.get(propertyId);
+        if (existing != null) {
+            return existing;
+        }
+
+        if (itemCount == itemIds.length) {
+            int capacity = itemCount * 2;
+            itemIds = Arrays.copyOf(itemIds, capacity);
+            frequency = Arrays.copyOf(frequency, capacity);
+            rowItems = Arrays.copyOf(rowItems, capacity);
+            rowCounts = Arrays.copyOf(rowCounts, capacity);
+            rowSize = Arrays.copyOf(rowSize, capacity);
+            topItems = Arrays.copyOf(topItems, capacity);
+        }
+
+        int item = itemCount++;
+        itemIds[item] = propertyId;
+        rowItems[item] = NO_ITEMS;
+        rowCounts[item] = NO_ITEMS;
+        itemIndex.put(propertyId, item);
+        return item;
+    }
+
+    /**
+     * Suma delta al conteo (row, column); inserta o elimina la entrada según haga falta
+     */
+    private void increment(int row, int column, int delta) {
+        int size = rowSize[row];
+        int[] items = rowItems[row];
+        int[] counts = rowCounts[row];
+        int position = Arrays.binarySearch(items, 0, size, column);
+
+        if (position >= 0) {
+            counts[position] += delta;
+            if (counts[position] <= 0) {
+                System.arraycopy(items, position + 1, items, position, size - position - 1);
+                System.arraycopy(counts, position + 1, counts, position, size - position - 1);
+                rowSize[row] = size - 1;
+                nonZeroEntries--;
+            }
+            return;
+        }
+        if (delta <= 0) {
+            return;
+        }
+
+        if (size == items.length) {
+            int capacity = Math.max(4, size * 2);
+            items = rowItems[row] = Arrays.copyOf(items, capacity);
+            counts = rowCounts[row] = Arrays.copyOf(counts, capacity);
+        }
+
+        int insertAt = -position - 1;
+        System.arraycopy(items, insertAt, items, insertAt + 1, size - insertAt);
+        System.arraycopy(counts, insertAt, counts, insertAt + 1, size - insertAt);
+        items[insertAt] = column;
+        counts[insertAt] = delta;
+        rowSize[row] = size + 1;
+        nonZeroEntries++;
+    }
+
+    /**
+     * Recalcula el top-M de un ítem desde su fila (ver refreshAround)
+     */
+    private void refreshTop(int item) {
+        int size = rowSize[item];
+        if (size == 0) {
+            topItems[item] = NO_ITEMS;
+            return;
+        }
+
+        TopKSelector top = new TopKSelector(maxNeighbors);
+        for (int k = 0; k < size; k++) {
+            int neighbor = rowItems[item][k];
+            top.offer(rowCounts[item][k] / Math.sqrt((double) frequency[item] * frequency[neighbor]), neighbor);
+        }
+        top.sortDescending();
+
+        int[] neighbors = new int[top.size()];
+        for (int rank = 0; rank < neighbors.length; rank++) {
+            neighbors[rank] = top.indexAt(rank);
+        }
+        topItems[item] = neighbors;
+    }
+
+    private double similarity(int item, int neighbor) {
+        int position = Arrays.binarySearch(rowItems[item], 0, rowSize[item], neighbor);
+        if (position < 0) {
+            return 0.0;
+        }
+        return rowCounts[item][position] / Math.sqrt((double) frequency[item] * frequency[neighbor]);
+    }
+}
@@ -0,0 +1,166 @@
+package com.roomierent.backend.util.datastructures;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Formato binario versionado para guardar y recuperar un CsrSimilarityGraph
+ *
+ * Cabecera: magic, versión de formato, huella de la configuración, huella del
+ * catálogo, nodos, entradas de vecinos y dimensión de los vectores. Luego los arreglos tal cual (ids, offsets,
+ * neighbors, weights, features) y al final un CRC32 de todo lo anterior.
+ * La lectura usa un FileChannel mapeado en memoria: cuesta O(tamaño del archivo)
+ */
+public final class CsrGraphFile {
+
+    private static final int MAGIC = 0x52524753; // "RRGS"
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 4 + 4 + 4;
+    private static final int CHECKSUM_BYTES = 8;
+
+    private CsrGraphFile() {
+    }
+
+    /**
+     * Escribe el grafo en un archivo temporal y lo mueve al destino (nunca queda a medias)
+     * La huella del catálogo es la que lleva el grafo (getCatalogFingerprint)
+     */
+    public static void write(Path path, CsrSimilarityGraph graph, long configFingerprint) throws IOException {
+        long[] ids = graph.ids();
+        int[] offsets = graph.offsets();
+        int[] neighbors = graph.neighbors();
+        float[] weights = graph.weights();
+        float[] features = graph.features();
+
+        long payloadBytes = HEADER_BYTES
+                + 8L * ids.length
+                + 4L * offsets.length
+                + 4L * neighbors.length
+                + 4L * weights.length
+                + 4L * features.length;
+
+        if (payloadBytes + CHECKSUM_BYTES > Integer.MAX_VALUE) {
+            throw new IOException("Grafo demasiado grande para el snapshot: " + payloadBytes + " bytes");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) payloadBytes + CHECKSUM_BYTES);
+        buffer.putInt(MAGIC);
+        buffer.putInt(FORMAT_VERSION);
+        buffer.putLong(configFingerprint);
+        buffer.putLong(graph.getCatalogFingerprint());
+        buffer.putInt(ids.length);
+        buffer.putInt(neighbors.length);
+        buffer.putInt(graph.getFeatureDimensions());
+
+        buffer.asLongBuffer().put(ids);
+        buffer.position(buffer.position() + 8 * ids.length);
+        buffer.asIntBuffer().put(offsets);
+        buffer.position(buffer.position() + 4 * offsets.length);
+        buffer.asIntBuffer().put(neighbors);
+        buffer.position(buffer.position() + 4 * neighbors.length);
+        buffer.asFloatBuffer().put(weights);
+        buffer.position(buffer.position() + 4 * weights.length);
+        buffer.asFloatBuffer().put(features);
+        buffer.position(buffer.position() + 4 * features.length);
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, (int) payloadBytes);
+        buffer.putLong(crc.getValue());
+        buffer.flip();
+
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Lee el grafo si el archivo es válido y fue generado con la misma configuración
+     * El grafo leído conserva la huella del catálogo para que el llamador la compare
+     *
+     * @return el grafo, o null si no existe o fue generado con otra configuración
+     * @throws IOException si el archivo está dañado (checksum o tamaños inválidos)
+     */
+    public static CsrSimilarityGraph read(Path path, long expectedConfigFingerprint) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_BYTES + CHECKSUM_BYTES) {
+                throw new IOException("Snapshot incompleto: " + fileSize + " bytes");
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            int payloadBytes = (int) (fileSize - CHECKSUM_BYTES);
+
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("No es un snapshot de grafo");
+            }
+            if (buffer.getInt() != FORMAT_VERSION) {
+                return null;
+            }
+            if (buffer.getLong() != expectedConfigFingerprint) {
+                return null;
+            }
+            long catalogFingerprint = buffer.getLong();
+
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate().position(0).limit(payloadBytes));
+            if (crc.getValue() != buffer.getLong(payloadBytes)) {
+                throw new IOException("Checksum inválido");
+            }
+
+            int nodeCount = buffer.getInt();
+            int entryCount = buffer.getInt();
+            int featureDimensions = buffer.getInt();
+
+            long expectedBytes = HEADER_BYTES
+                    + 8L * nodeCount
+                    + 4L * (nodeCount + 1)
+                    + 8L * entryCount
+                    + 4L * nodeCount * featureDimensions;
+            if (nodeCount < 0 || entryCount < 0 || featureDimensions < 0 || expectedBytes != payloadBytes) {
+                throw new IOException("Tamaños inconsistentes en el snapshot");
+            }
+
+            long[] ids = new long[nodeCount];
+            int[] offsets = new int[nodeCount + 1];
+            int[] neighbors = new int[entryCount];
+            float[] weights = new float[entryCount];
+            float[] features = new float[nodeCount * featureDimensions];
+
+            buffer.asLongBuffer().get(ids);
+            buffer.position(buffer.position() + 8 * ids.length);
+            buffer.asIntBuffer().get(offsets);
+            buffer.position(buffer.position() + 4 * offsets.length);
+            buffer.asIntBuffer().get(neighbors);
+            buffer.position(buffer.position() + 4 * neighbors.length);
+            buffer.asFloatBuffer().get(weights);
+            buffer.position(buffer.position() + 4 * weights.length);
+            buffer.asFloatBuffer().get(features);
+
+            return new CsrSimilarityGraph(ids, offsets, neighbors, weights, featureDimensions, features,
+                    catalogFingerprint);
+        }
+    }
+}
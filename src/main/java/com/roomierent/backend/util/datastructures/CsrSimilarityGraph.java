@@ -0,0 +1,297 @@
+package com.roomierent.backend.util.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * Grafo de similitud inmutable en formato CSR (compressed sparse row)
+ * Los cambios incrementales no lo copian: PropertyGraph los guarda en un overlay por nodo
+ *
+ * ids:       ids de propiedad ordenados (id -> índice por búsqueda binaria)
+ * offsets:   vecinos del nodo i en [offsets[i], offsets[i + 1])
+ * neighbors: índice del vecino, ordenado por similitud descendente en cada fila
+ * weights:   similitud como float (4 bytes en vez de un Double + nodo de HashMap)
+ * features:  vector de características de cada nodo, contiguo (nodos × dimensiones)
+ *
+ * La huella del catálogo (PropertyCatalogSnapshot.getFingerprint) identifica el
+ * snapshot con el que se calculó el grafo; 0 si no se conoce
+ */
+public final class CsrSimilarityGraph {
+
+    public static final CsrSimilarityGraph EMPTY = new Builder().build();
+
+    private final long[] ids;
+    private final int[] offsets;
+    private final int[] neighbors;
+    private final float[] weights;
+    private final int featureDimensions;
+    private final float[] features;
+    private final long catalogFingerprint;
+
+    CsrSimilarityGraph(long[] ids, int[] offsets, int[] neighbors, float[] weights,
+                       int featureDimensions, float[] features, long catalogFingerprint) {
+        this.ids = ids;
+        this.offsets = offsets;
+        this.neighbors = neighbors;
+        this.weights = weights;
+        this.featureDimensions = featureDimensions;
+        this.features = features;
+        this.catalogFingerprint = catalogFingerprint;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int nodeCount() {
+        return ids.length;
+    }
+
+    /**
+     * Número de aristas no dirigidas
+     */
+    public int edgeCount() {
+        return neighbors.length / 2;
+    }
+
+    /**
+     * Índice del nodo (-1 si la propiedad no está en el grafo)
+     */
+    public int indexOf(long propertyId) {
+        int index = Arrays.binarySearch(ids, propertyId);
+        return index >= 0 ? index : -1;
+    }
+
+    public long idAt(int index) {
+        return ids[index];
+    }
+
+    public int rowStart(int index) {
+        return offsets[index];
+    }
+
+    public int rowEnd(int index) {
+        return offsets[index + 1];
+    }
+
+    public long neighborIdAt(int position) {
+        return ids[neighbors[position]];
+    }
+
+    public float weightAt(int position) {
+        return weights[position];
+    }
+
+    /**
+     * Huella del snapshot de catálogo con el que se calculó el grafo (0 si no se conoce)
+     */
+    public long getCatalogFingerprint() {
+        return catalogFingerprint;
+    }
+
+    /**
+     * El mismo grafo (comparte los arreglos) asociado a otro snapshot de catálogo
+     */
+    public CsrSimilarityGraph withCatalogFingerprint(long fingerprint) {
+        if (fingerprint == catalogFingerprint) {
+            return this;
+        }
+        return new CsrSimilarityGraph(ids, offsets, neighbors, weights, featureDimensions, features, fingerprint);
+    }
+
+    /**
+     * Dimensión de los vectores de características (0 si el grafo no los tiene)
+     */
+    public int getFeatureDimensions() {
+        return featureDimensions;
+    }
+
+    /**
+     * Copia del vector de características del nodo (null si el grafo no los tiene)
+     */
+    public float[] featureVectorAt(int index) {
+        if (featureDimensions == 0) {
+            return null;
+        }
+        return Arrays.copyOfRange(features, index * featureDimensions, (index + 1) * featureDimensions);
+    }
+
+    // Acceso directo a los arreglos para serializar el grafo (CsrGraphFile)
+    long[] ids() {
+        return ids;
+    }
+
+    int[] offsets() {
+        return offsets;
+    }
+
+    int[] neighbors() {
+        return neighbors;
+    }
+
+    float[] weights() {
+        return weights;
+    }
+
+    float[] features() {
+        return features;
+    }
+
+    /**
+     * Acumula nodos y aristas no dirigidas y compila el CSR
+     */
+    public static final class Builder {
+
+        private long[] nodes = new long[16];
+        private float[][] nodeFeatures = new float[16][];
+        private int nodeCount;
+        private int featureDimensions;
+
+        private long[] sources = new long[16];
+        private long[] targets = new long[16];
+        private float[] edgeWeights = new float[16];
+        private int edgeCount;
+        private long catalogFingerprint;
+
+        public Builder catalogFingerprint(long fingerprint) {
+            this.catalogFingerprint = fingerprint;
+            return this;
+        }
+
+        public Builder addNode(long propertyId) {
+            return addNode(propertyId, (float[]) null);
+        }
+
+        public Builder addNode(long propertyId, double[] featureVector) {
+            float[] vector = null;
+            if (featureVector != null) {
+                vector = new float[featureVector.length];
+                for (int d = 0; d < vector.length; d++) {
+                    vector[d] = (float) featureVector[d];
+                }
+            }
+            return addNode(propertyId, vector);
+        }
+
+        Builder addNode(long propertyId, float[] featureVector) {
+            if (nodeCount == nodes.length) {
+                nodes = Arrays.copyOf(nodes, nodeCount * 2);
+                nodeFeatures = Arrays.copyOf(nodeFeatures, nodeCount * 2);
+            }
+            if (featureVector != null) {
+                if (featureDimensions == 0) {
+                    featureDimensions = featureVector.length;
+                } else if (featureVector.length != featureDimensions) {
+                    throw new IllegalArgumentException("Vector de dimensión " + featureVector.length +
+                            ", se esperaba " + featureDimensions);
+                }
+            }
+            nodes[nodeCount] = propertyId;
+            nodeFeatures[nodeCount++] = featureVector;
+            return this;
+        }
+
+        public Builder addEdge(long propertyId1, long propertyId2, double similarity) {
+            if (edgeCount == sources.length) {
+                int capacity = edgeCount * 2;
+                sources = Arrays.copyOf(sources, capacity);
+                targets = Arrays.copyOf(targets, capacity);
+                edgeWeights = Arrays.copyOf(edgeWeights, capacity);
+            }
+            sources[edgeCount] = propertyId1;
+            targets[edgeCount] = propertyId2;
+            edgeWeights[edgeCount] = (float) similarity;
+            edgeCount++;
+            return this;
+        }
+
+        public CsrSimilarityGraph build() {
+            long[] ids = Arrays.copyOf(nodes, nodeCount);
+            Arrays.sort(ids);
+            ids = distinct(ids);
+
+            // 1. Grado de cada nodo (cada arista cuenta en ambos extremos)
+            int[] sourceIndex = new int[edgeCount];
+            int[] targetIndex = new int[edgeCount];
+            int[] offsets = new int[ids.length + 1];
+
+            for (int e = 0; e < edgeCount; e++) {
+                sourceIndex[e] = Arrays.binarySearch(ids, sources[e]);
+                targetIndex[e] = Arrays.binarySearch(ids, targets[e]);
+                if (sourceIndex[e] < 0 || targetIndex[e] < 0) {
+                    throw new IllegalStateException("Arista con un nodo que no está en el grafo: " +
+                            sources[e] + " - " + targets[e]);
+                }
+                offsets[sourceIndex[e] + 1]++;
+                offsets[targetIndex[e] + 1]++;
+            }
+
+            for (int i = 0; i < ids.length; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+
+            // 2. Llenar filas
+            int[] neighbors = new int[offsets[ids.length]];
+            float[] weights = new float[neighbors.length];
+            int[] cursor = Arrays.copyOf(offsets, ids.length);
+
+            for (int e = 0; e < edgeCount; e++) {
+                int a = sourceIndex[e];
+                int b = targetIndex[e];
+                neighbors[cursor[a]] = b;
+                weights[cursor[a]++] = edgeWeights[e];
+                neighbors[cursor[b]] = a;
+                weights[cursor[b]++] = edgeWeights[e];
+            }
+
+            // 3. Ordenar cada fila por similitud descendente (desempate: vecino de id menor)
+            long[] keys = new long[0];
+            for (int i = 0; i < ids.length; i++) {
+                int start = offsets[i];
+                int length = offsets[i + 1] - start;
+                if (length < 2) {
+                    continue;
+                }
+                if (keys.length < length) {
+                    keys = new long[length];
+                }
+
+                // Similitudes >= 0: los bits del float conservan el orden
+                for (int k = 0; k < length; k++) {
+                    keys[k] = ((long) Float.floatToIntBits(weights[start + k]) << 32)
+                            | (Integer.MAX_VALUE - neighbors[start + k]);
+                }
+                Arrays.sort(keys, 0, length);
+
+                for (int k = 0; k < length; k++) {
+                    long key = keys[length - 1 - k];
+                    weights[start + k] = Float.intBitsToFloat((int) (key >>> 32));
+                    neighbors[start + k] = Integer.MAX_VALUE - (int) key;
+                }
+            }
+
+            // 4. Vectores de características en el orden de los ids (ceros si faltan)
+            float[] features = new float[ids.length * featureDimensions];
+            if (featureDimensions > 0) {
+                for (int k = 0; k < nodeCount; k++) {
+                    if (nodeFeatures[k] != null) {
+                        int index = Arrays.binarySearch(ids, nodes[k]);
+                        System.arraycopy(nodeFeatures[k], 0, features, index * featureDimensions, featureDimensions);
+                    }
+                }
+            }
+
+            return new CsrSimilarityGraph(ids, offsets, neighbors, weights, featureDimensions, features,
+                    catalogFingerprint);
+        }
+
+        private static long[] distinct(long[] sorted) {
+            int unique = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) {
+                    sorted[unique++] = sorted[i];
+                }
+            }
+            return unique == sorted.length ? sorted : Arrays.copyOf(sorted, unique);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.roomierent.backend.util.datastructures;
+
+/**
+ * Bloque contiguo de vectores de características normalizados (norma 1)
+ *
+ * Se guarda por dimensión (data[d * stride + fila]): las filas consecutivas de
+ * una misma dimensión quedan juntas y un kernel SIMD procesa varias a la vez.
+ * Con vectores normalizados, la similitud de coseno es solo el producto punto
+ */
+public final class FeatureMatrix {
+
+    private final int dimensions;
+    private final int rows;
+    private final float[] data;
+
+    public FeatureMatrix(int dimensions, int rows) {
+        this.dimensions = dimensions;
+        this.rows = rows;
+        this.data = new float[dimensions * rows];
+    }
+
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Distancia entre dimensiones consecutivas de una fila dentro de data
+     */
+    public int getStride() {
+        return rows;
+    }
+
+    public float[] getData() {
+        return data;
+    }
+
+    /**
+     * Guarda el vector normalizado en la fila (un vector nulo queda en ceros)
+     */
+    public void setRow(int row, double[] vector) {
+        double norm = 0.0;
+        for (double value : vector) {
+            norm += value * value;
+        }
+        double scale = norm == 0.0 ? 0.0 : 1.0 / Math.sqrt(norm);
+
+        for (int d = 0; d < dimensions; d++) {
+            data[d * rows + row] = (float) (vector[d] * scale);
+        }
+    }
+
+    /**
+     * Copia la fila normalizada en out (para usarla como consulta)
+     */
+    public void copyRow(int row, float[] out) {
+        for (int d = 0; d < dimensions; d++) {
+            out[d] = data[d * rows + row];
+        }
+    }
+}
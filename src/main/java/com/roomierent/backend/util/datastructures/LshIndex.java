@@ -0,0 +1,232 @@
+package com.roomierent.backend.util.datastructures;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Índice de vecinos aproximados (ANN) con LSH de proyecciones aleatorias (p-stable)
+ *
+ * Cada tabla proyecta el vector sobre varias direcciones gaussianas y discretiza
+ * h(v) = floor((a·v + b) / w); vectores cercanos caen en el mismo bucket con alta
+ * probabilidad. Más tablas o buckets más anchos = mayor recall y más candidatos
+ *
+ * Antes de proyectar, cada dimensión se centra y se divide por su desviación estándar
+ * en los datos indexados: así ninguna dimensión domina las proyecciones por su escala
+ * (p. ej. coordenadas frente a features normalizados). La normalización se aplica
+ * igual a las consultas, plegada en las proyecciones y los offsets
+ */
+public final class LshIndex {
+
+    private static final int[] NO_CANDIDATES = new int[0];
+
+    private final int dimensions;
+    private final int tables;
+    private final int hashesPerTable;
+    private final double bucketWidth;
+
+    // Proyecciones aplanadas: [tabla][hash][dimensión], ya multiplicadas por la escala de cada dimensión
+    private final double[] projections;
+    private final double[] offsets;
+
+    // Por tabla: clave de bucket -> índices de los vectores
+    private final Map<Long, int[]>[] buckets;
+    private final int size;
+
+    @SuppressWarnings("unchecked")
+    private LshIndex(int dimensions, int tables, int hashesPerTable, double bucketWidth,
+                     long seed, float[] vectors, int size) {
+        this.dimensions = dimensions;
+        this.tables = tables;
+        this.hashesPerTable = hashesPerTable;
+        this.bucketWidth = bucketWidth;
+        this.size = size;
+
+        Random random = new Random(seed);
+        this.projections = new double[tables * hashesPerTable * dimensions];
+        this.offsets = new double[tables * hashesPerTable];
+        for (int i = 0; i < projections.length; i++) {
+            projections[i] = random.nextGaussian();
+        }
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = random.nextDouble() * bucketWidth;
+        }
+        standardize(vectors);
+
+        this.buckets = new Map[tables];
+        for (int table = 0; table < tables; table++) {
+            Map<Long, int[]> tableBuckets = new HashMap<>();
+            Map<Long, Integer> counts = new HashMap<>();
+            long[] keys = new long[size];
+
+            for (int i = 0; i < size; i++) {
+                keys[i] = bucketKey(table, vectors, i * dimensions);
+                counts.merge(keys[i], 1, Integer::sum);
+            }
+
+            for (Map.Entry<Long, Integer> count : counts.entrySet()) {
+                tableBuckets.put(count.getKey(), new int[count.getValue()]);
+            }
+
+            Map<Long, Integer> fill = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                int position = fill.merge(keys[i], 1, Integer::sum) - 1;
+                tableBuckets.get(keys[i])[position] = i;
+            }
+
+            this.buckets[table] = tableBuckets;
+        }
+    }
+
+    /**
+     * Pliega la normalización por dimensión en las proyecciones:
+     * a·((v - media) / desviación) + b = (a / desviación)·v + (b - a·media / desviación)
+     * Una dimensión constante no aporta nada y queda con peso 0
+     */
+    private void standardize(float[] vectors) {
+        double[] mean = new double[dimensions];
+        double[] scale = new double[dimensions];
+
+        for (int i = 0; i < size; i++) {
+            for (int d = 0; d < dimensions; d++) {
+                mean[d] += vectors[i * dimensions + d];
+            }
+        }
+        for (int d = 0; d < dimensions; d++) {
+            mean[d] = size == 0 ? 0.0 : mean[d] / size;
+        }
+
+        for (int i = 0; i < size; i++) {
+            for (int d = 0; d < dimensions; d++) {
+                double delta = vectors[i * dimensions + d] - mean[d];
+                scale[d] += delta * delta;
+            }
+        }
+        for (int d = 0; d < dimensions; d++) {
+            double deviation = size == 0 ? 0.0 : Math.sqrt(scale[d] / size);
+            scale[d] = deviation > 0 ? 1.0 / deviation : 0.0;
+        }
+
+        for (int h = 0; h < offsets.length; h++) {
+            int projectionBase = h * dimensions;
+            for (int d = 0; d < dimensions; d++) {
+                projections[projectionBase + d] *= scale[d];
+                offsets[h] -= projections[projectionBase + d] * mean[d];
+            }
+        }
+    }
+
+    /**
+     * Construye el índice sobre vectores aplanados (size × dimensions)
+     */
+    public static LshIndex build(float[] vectors, int dimensions, int tables,
+                                 int hashesPerTable, double bucketWidth, long seed) {
+        if (dimensions <= 0 || vectors.length % dimensions != 0) {
+            throw new IllegalArgumentException("Vectores no coinciden con la dimensión " + dimensions);
+        }
+        return new LshIndex(
+                dimensions,
+                Math.max(tables, 1),
+                Math.max(hashesPerTable, 1),
+                bucketWidth > 0 ? bucketWidth : 1.0,
+                seed,
+                vectors,
+                vectors.length / dimensions
+        );
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    /**
+     * Candidatos que comparten bucket con la consulta en al menos una tabla
+     * (índices sin repetir, en orden ascendente)
+     */
+    public int[] candidates(float[] query) {
+        if (query.length != dimensions) {
+            throw new IllegalArgumentException("La consulta debe tener dimensión " + dimensions);
+        }
+        if (size == 0) {
+            return NO_CANDIDATES;
+        }
+
+        // Buckets de la consulta en cada tabla; solo se copian y ordenan esos índices,
+        // así el costo depende de los candidatos y no del tamaño del índice
+        int[][] matches = new int[tables][];
+        int total = 0;
+        for (int table = 0; table < tables; table++) {
+            matches[table] = buckets[table].get(bucketKey(table, query, 0));
+            if (matches[table] != null) {
+                total += matches[table].length;
+            }
+        }
+        if (total == 0) {
+            return NO_CANDIDATES;
+        }
+
+        int[] result = new int[total];
+        int position = 0;
+        for (int[] bucket : matches) {
+            if (bucket != null) {
+                System.arraycopy(bucket, 0, result, position, bucket.length);
+                position += bucket.length;
+            }
+        }
+
+        // Ordenar y quitar repetidos (un vector puede compartir bucket en varias tablas)
+        Arrays.sort(result);
+        int unique = 1;
+        for (int i = 1; i < total; i++) {
+            if (result[i] != result[unique - 1]) {
+                result[unique++] = result[i];
+            }
+        }
+        return unique == total ? result : Arrays.copyOf(result, unique);
+    }
+
+    /**
+     * Estadísticas del índice (tablas, buckets y tamaño medio de bucket)
+     */
+    public Map<String, Object> stats() {
+        long totalBuckets = 0;
+        for (Map<Long, int[]> tableBuckets : buckets) {
+            totalBuckets += tableBuckets.size();
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size);
+        stats.put("dimensions", dimensions);
+        stats.put("tables", tables);
+        stats.put("hashesPerTable", hashesPerTable);
+        stats.put("bucketWidth", bucketWidth);
+        stats.put("buckets", totalBuckets);
+        stats.put("avgBucketSize", totalBuckets == 0 ? 0.0 : (double) size * tables / totalBuckets);
+        return stats;
+    }
+
+    /**
+     * Combina los hashes de una tabla en una sola clave de 64 bits
+     */
+    private long bucketKey(int table, float[] vectors, int offset) {
+        long key = 1125899906842597L;
+        int hashBase = table * hashesPerTable;
+
+        for (int h = 0; h < hashesPerTable; h++) {
+            int projectionBase = (hashBase + h) * dimensions;
+            double dot = offsets[hashBase + h];
+            for (int d = 0; d < dimensions; d++) {
+                dot += projections[projectionBase + d] * vectors[offset + d];
+            }
+            long slot = (long) Math.floor(dot / bucketWidth);
+            key = 31 * key + slot;
+        }
+        return key;
+    }
+}
@@ -0,0 +1,389 @@
+package com.roomierent.backend.util.datastructures;
+
+import com.roomierent.backend.model.entity.PropertyType;
+import com.roomierent.backend.util.PriceUtils;
+import com.roomierent.backend.util.SimilarityCalculator;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Snapshot columnar (struct-of-arrays) de las propiedades disponibles
+ * Guarda solo los campos que usa el scoring en arreglos primitivos,
+ * así una recomendación no necesita ir a la base de datos ni crear entidades
+ *
+ * También guarda los PropertyFeatures de cada fila (calculados una vez al cargar):
+ * la construcción del grafo, su actualización incremental y el índice ANN los reutilizan.
+ * Cada fila lleva una huella de sus columnas para detectar qué cambió entre versiones
+ */
+public final class PropertyCatalogSnapshot {
+
+    public static final PropertyCatalogSnapshot EMPTY = builder(0, 0).build();
+
+    private final long version;
+    private final int size;
+
+    private final long[] ids;
+    private final long[] priceCents;
+    private final int[] bedrooms;
+    private final int[] bathrooms;
+    private final double[] area;       // NaN si no tiene área
+    private final double[] latitude;
+    private final double[] longitude;
+    private final int[] typeOrdinal;
+    private final int[] cityId;
+    private final int[] neighborhoodId;
+
+    // Máscaras de amenities aplanadas: la fila i ocupa [i * amenityWords, (i + 1) * amenityWords)
+    private final int amenityWords;
+    private final long[] amenityMasks;
+
+    // Datos derivados para la similitud entre pares, uno por fila
+    private final PropertyFeatures[] features;
+    private final List<PropertyFeatures> featureList;
+
+    // Vectores normalizados de cada fila en float, para los cosenos en lote con CosineKernel
+    private final FeatureMatrix featureMatrix;
+
+    // Huella de las columnas de cada fila y de todo el catálogo
+    private final long[] rowFingerprints;
+    private final long fingerprint;
+
+    // Las filas llegan ordenadas por id (ORDER BY p.id): permite búsqueda binaria
+    private final boolean idsSorted;
+
+    private PropertyCatalogSnapshot(Builder builder) {
+        this.version = builder.version;
+        this.size = builder.size;
+        this.ids = Arrays.copyOf(builder.ids, size);
+        this.priceCents = Arrays.copyOf(builder.priceCents, size);
+        this.bedrooms = Arrays.copyOf(builder.bedrooms, size);
+        this.bathrooms = Arrays.copyOf(builder.bathrooms, size);
+        this.area = Arrays.copyOf(builder.area, size);
+        this.latitude = Arrays.copyOf(builder.latitude, size);
+        this.longitude = Arrays.copyOf(builder.longitude, size);
+        this.typeOrdinal = Arrays.copyOf(builder.typeOrdinal, size);
+        this.cityId = Arrays.copyOf(builder.cityId, size);
+        this.neighborhoodId = Arrays.copyOf(builder.neighborhoodId, size);
+        this.amenityWords = AmenityDictionary.wordCount();
+        this.amenityMasks = new long[size * amenityWords];
+        for (int i = 0; i < size; i++) {
+            long[] mask = builder.amenityMasks[i];
+            System.arraycopy(mask, 0, amenityMasks, i * amenityWords, Math.min(mask.length, amenityWords));
+        }
+        this.features = Arrays.copyOf(builder.features, size);
+        this.featureList = Collections.unmodifiableList(Arrays.asList(features));
+        this.featureMatrix = new FeatureMatrix(SimilarityCalculator.FEATURE_DIMENSIONS, size);
+        for (int i = 0; i < size; i++) {
+            featureMatrix.setRow(i, features[i].getUnitVector());
+        }
+        this.rowFingerprints = Arrays.copyOf(builder.rowFingerprints, size);
+
+        long hash = size;
+        for (long rowFingerprint : rowFingerprints) {
+            hash = mix(hash ^ rowFingerprint);
+        }
+        this.fingerprint = hash;
+
+        boolean sorted = true;
+        for (int i = 1; i < size && sorted; i++) {
+            sorted = ids[i - 1] < ids[i];
+        }
+        this.idsSorted = sorted;
+    }
+
+    public static Builder builder(long version, int expectedSize) {
+        return new Builder(version, expectedSize);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Fila de una propiedad (-1 si no está en el snapshot)
+     */
+    public int indexOf(long id) {
+        if (idsSorted) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            return index >= 0 ? index : -1;
+        }
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public long getId(int index) {
+        return ids[index];
+    }
+
+    public long getPriceCents(int index) {
+        return priceCents[index];
+    }
+
+    public int getBedrooms(int index) {
+        return bedrooms[index];
+    }
+
+    public int getBathrooms(int index) {
+        return bathrooms[index];
+    }
+
+    public double getArea(int index) {
+        return area[index];
+    }
+
+    public double getLatitude(int index) {
+        return latitude[index];
+    }
+
+    public double getLongitude(int index) {
+        return longitude[index];
+    }
+
+    public int getTypeOrdinal(int index) {
+        return typeOrdinal[index];
+    }
+
+    public int getCityId(int index) {
+        return cityId[index];
+    }
+
+    public int getNeighborhoodId(int index) {
+        return neighborhoodId[index];
+    }
+
+    public PropertyFeatures getFeatures(int index) {
+        return features[index];
+    }
+
+    /**
+     * Features de todas las filas en el orden del snapshot (solo lectura)
+     */
+    public List<PropertyFeatures> getFeatureList() {
+        return featureList;
+    }
+
+    /**
+     * Vectores normalizados de todas las filas (fila i = getFeatures(i)), solo lectura
+     * Mismo formato que usa la construcción completa del grafo con CosineKernel
+     */
+    public FeatureMatrix getFeatureMatrix() {
+        return featureMatrix;
+    }
+
+    /**
+     * Huella de las columnas de todas las filas: dos snapshots con la misma huella
+     * tienen las mismas propiedades con los mismos datos (la versión no cuenta)
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * IDs que se agregaron, eliminaron o cambiaron respecto de un snapshot anterior
+     * Compara las huellas de fila recorriendo ambos snapshots ordenados por id: O(n)
+     */
+    public long[] changedIdsSince(PropertyCatalogSnapshot previous) {
+        if (!idsSorted || !previous.idsSorted) {
+            throw new IllegalStateException("El diff de snapshots requiere filas ordenadas por id");
+        }
+
+        long[] changed = new long[16];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+
+        while (i < size || j < previous.size) {
+            long changedId;
+            if (j == previous.size || (i < size && ids[i] < previous.ids[j])) {
+                changedId = ids[i++];                       // nueva
+            } else if (i == size || previous.ids[j] < ids[i]) {
+                changedId = previous.ids[j++];              // eliminada o ya no disponible
+            } else {
+                boolean same = rowFingerprints[i] == previous.rowFingerprints[j];
+                changedId = ids[i];
+                i++;
+                j++;
+                if (same) {
+                    continue;
+                }
+            }
+
+            if (count == changed.length) {
+                changed = Arrays.copyOf(changed, count * 2);
+            }
+            changed[count++] = changedId;
+        }
+
+        return Arrays.copyOf(changed, count);
+    }
+
+    public int getAmenityWords() {
+        return amenityWords;
+    }
+
+    public long[] getAmenityMasks() {
+        return amenityMasks;
+    }
+
+    /**
+     * Jaccard entre la máscara de la fila y otra máscara (NaN si ambas están vacías)
+     */
+    public double amenityJaccard(int index, long[] mask) {
+        return AmenityDictionary.jaccard(amenityMasks, index * amenityWords, amenityWords,
+                mask, 0, mask.length);
+    }
+
+    /**
+     * Igual que amenityJaccard pero con extraUnion elementos que solo tiene la máscara dada
+     */
+    public double amenityJaccard(int index, long[] mask, int extraUnion) {
+        return AmenityDictionary.jaccard(amenityMasks, index * amenityWords, amenityWords,
+                mask, 0, mask.length, extraUnion);
+    }
+
+    /**
+     * Construye el snapshot fila por fila
+     */
+    public static final class Builder {
+
+        private final long version;
+        private int size;
+
+        private long[] ids;
+        private long[] priceCents;
+        private int[] bedrooms;
+        private int[] bathrooms;
+        private double[] area;
+        private double[] latitude;
+        private double[] longitude;
+        private int[] typeOrdinal;
+        private int[] cityId;
+        private int[] neighborhoodId;
+        private long[][] amenityMasks;
+        private PropertyFeatures[] features;
+        private long[] rowFingerprints;
+
+        private Builder(long version, int expectedSize) {
+            int capacity = Math.max(expectedSize, 1);
+            this.version = version;
+            this.ids = new long[capacity];
+            this.priceCents = new long[capacity];
+            this.bedrooms = new int[capacity];
+            this.bathrooms = new int[capacity];
+            this.area = new double[capacity];
+            this.latitude = new double[capacity];
+            this.longitude = new double[capacity];
+            this.typeOrdinal = new int[capacity];
+            this.cityId = new int[capacity];
+            this.neighborhoodId = new int[capacity];
+            this.amenityMasks = new long[capacity][];
+            this.features = new PropertyFeatures[capacity];
+            this.rowFingerprints = new long[capacity];
+        }
+
+        public Builder add(
+                Long id,
+                BigDecimal price,
+                Integer bedrooms,
+                Integer bathrooms,
+                Double area,
+                Double latitude,
+                Double longitude,
+                PropertyType type,
+                String city,
+                String neighborhood,
+                String amenities
+        ) {
+            ensureCapacity(size + 1);
+
+            PropertyFeatures rowFeatures = PropertyFeatures.of(id, price, bedrooms, bathrooms, area,
+                    latitude, longitude, type, city, neighborhood, amenities);
+
+            int row = size;
+            this.ids[row] = id;
+            this.priceCents[row] = PriceUtils.toCents(price);
+            this.bedrooms[row] = bedrooms != null ? bedrooms : 0;
+            this.bathrooms[row] = bathrooms != null ? bathrooms : 0;
+            this.area[row] = area != null ? area : Double.NaN;
+            this.latitude[row] = latitude != null ? latitude : Double.NaN;
+            this.longitude[row] = longitude != null ? longitude : Double.NaN;
+            this.typeOrdinal[row] = type != null ? type.ordinal() : -1;
+            this.cityId[row] = rowFeatures.getCityId();
+            this.neighborhoodId[row] = rowFeatures.getNeighborhoodId();
+            this.amenityMasks[row] = rowFeatures.getAmenityMask();
+            this.features[row] = rowFeatures;
+            this.rowFingerprints[row] = rowFingerprint(id, price, bedrooms, bathrooms, area,
+                    latitude, longitude, type, city, neighborhood, amenities);
+
+            size++;
+            return this;
+        }
+
+        /**
+         * Huella de las columnas de una fila, estable entre ejecuciones
+         * (hash de los textos y nombre del enum, no ids del diccionario ni ordinales)
+         */
+        private static long rowFingerprint(Object... columns) {
+            long hash = columns.length;
+            for (Object column : columns) {
+                hash = mix(hash ^ columnHash(column));
+            }
+            return hash;
+        }
+
+        private static long columnHash(Object column) {
+            if (column instanceof BigDecimal decimal) {
+                // Igual valor con distinta escala debe dar la misma huella
+                return decimal.stripTrailingZeros().hashCode();
+            }
+            if (column instanceof Enum<?> constant) {
+                // hashCode de un enum cambia entre ejecuciones; el nombre no
+                return constant.name().hashCode();
+            }
+            return Objects.hashCode(column);
+        }
+
+        public PropertyCatalogSnapshot build() {
+            return new PropertyCatalogSnapshot(this);
+        }
+
+        private void ensureCapacity(int required) {
+            if (required <= ids.length) {
+                return;
+            }
+            int capacity = Math.max(ids.length * 2, required);
+            ids = Arrays.copyOf(ids, capacity);
+            priceCents = Arrays.copyOf(priceCents, capacity);
+            bedrooms = Arrays.copyOf(bedrooms, capacity);
+            bathrooms = Arrays.copyOf(bathrooms, capacity);
+            area = Arrays.copyOf(area, capacity);
+            latitude = Arrays.copyOf(latitude, capacity);
+            longitude = Arrays.copyOf(longitude, capacity);
+            typeOrdinal = Arrays.copyOf(typeOrdinal, capacity);
+            cityId = Arrays.copyOf(cityId, capacity);
+            neighborhoodId = Arrays.copyOf(neighborhoodId, capacity);
+            amenityMasks = Arrays.copyOf(amenityMasks, capacity);
+            features = Arrays.copyOf(features, capacity);
+            rowFingerprints = Arrays.copyOf(rowFingerprints, capacity);
+        }
+    }
+
+    // Mezcla de bits (finalizador de SplitMix64)
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+}
@@ -0,0 +1,186 @@
+package com.roomierent.backend.util.datastructures;
+
+import com.roomierent.backend.model.entity.Property;
+import com.roomierent.backend.model.entity.PropertyType;
+import com.roomierent.backend.util.PriceUtils;
+import com.roomierent.backend.util.SimilarityCalculator;
+
+import java.math.BigDecimal;
+
+/**
+ * Datos derivados de una propiedad que usa la similitud entre pares
+ * Se calculan una sola vez (al cargar el catálogo) en lugar de en cada comparación:
+ * vector normalizado, términos trigonométricos de la ubicación, ids internados de
+ * ciudad y barrio y la máscara de amenities
+ */
+public final class PropertyFeatures {
+
+    private final long id;
+    private final boolean hasPrice;
+    private final long priceCents;       // precio en centavos (0 si no tiene)
+    private final double[] vector;       // vector de características (SimilarityCalculator)
+    private final double[] unitVector;   // el mismo vector con norma 1
+    private final int cityId;            // -1 si no tiene
+    private final int neighborhoodId;    // -1 si no tiene
+    private final boolean hasCoordinates;
+    private final double latitude;
+    private final double longitude;
+    private final double latitudeRadians;
+    private final double longitudeRadians;
+    private final double cosLatitude;
+    private final long[] amenityMask;
+    private final int amenityCount;
+
+    private PropertyFeatures(
+            Long id,
+            BigDecimal price,
+            Integer bedrooms,
+            Integer bathrooms,
+            Double area,
+            Double latitude,
+            Double longitude,
+            PropertyType type,
+            String city,
+            String neighborhood,
+            String amenities
+    ) {
+        this.id = id == null ? -1L : id;
+        this.hasPrice = price != null;
+        this.priceCents = hasPrice ? PriceUtils.toCents(price) : 0L;
+        this.vector = SimilarityCalculator.createFeatureVector(price, bedrooms, bathrooms, area, type, amenities);
+        this.unitVector = normalize(vector);
+        this.cityId = TermDictionary.CITIES.intern(city);
+        this.neighborhoodId = TermDictionary.NEIGHBORHOODS.intern(neighborhood);
+
+        this.hasCoordinates = latitude != null && longitude != null;
+        this.latitude = hasCoordinates ? latitude : 0.0;
+        this.longitude = hasCoordinates ? longitude : 0.0;
+        this.latitudeRadians = Math.toRadians(this.latitude);
+        this.longitudeRadians = Math.toRadians(this.longitude);
+        this.cosLatitude = Math.cos(latitudeRadians);
+
+        this.amenityMask = AmenityDictionary.maskOf(amenities);
+        this.amenityCount = AmenityDictionary.count(amenityMask);
+    }
+
+    public static PropertyFeatures of(Property property) {
+        return of(
+                property.getId(),
+                property.getPrice(),
+                property.getBedrooms(),
+                property.getBathrooms(),
+                property.getArea(),
+                property.getLatitude(),
+                property.getLongitude(),
+                property.getType(),
+                property.getCity(),
+                property.getNeighborhood(),
+                property.getAmenities()
+        );
+    }
+
+    /**
+     * Features desde las columnas de una fila, sin crear la entidad
+     * (el snapshot de catálogo las construye así al escanear la tabla)
+     */
+    public static PropertyFeatures of(
+            Long id,
+            BigDecimal price,
+            Integer bedrooms,
+            Integer bathrooms,
+            Double area,
+            Double latitude,
+            Double longitude,
+            PropertyType type,
+            String city,
+            String neighborhood,
+            String amenities
+    ) {
+        return new PropertyFeatures(id, price, bedrooms, bathrooms, area, latitude, longitude,
+                type, city, neighborhood, amenities);
+    }
+
+    private static double[] normalize(double[] vector) {
+        double norm = 0.0;
+        for (double value : vector) {
+            norm += value * value;
+        }
+
+        double[] unit = new double[vector.length];
+        if (norm == 0.0) {
+            return unit;
+        }
+
+        double scale = 1.0 / Math.sqrt(norm);
+        for (int d = 0; d < vector.length; d++) {
+            unit[d] = vector[d] * scale;
+        }
+        return unit;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public boolean hasPrice() {
+        return hasPrice;
+    }
+
+    public long getPriceCents() {
+        return priceCents;
+    }
+
+    /**
+     * Vector de características sin normalizar (no modificar: es compartido)
+     */
+    public double[] getVector() {
+        return vector;
+    }
+
+    /**
+     * Vector de características normalizado (no modificar: es compartido)
+     */
+    public double[] getUnitVector() {
+        return unitVector;
+    }
+
+    public int getCityId() {
+        return cityId;
+    }
+
+    public int getNeighborhoodId() {
+        return neighborhoodId;
+    }
+
+    public boolean hasCoordinates() {
+        return hasCoordinates;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public double getLatitudeRadians() {
+        return latitudeRadians;
+    }
+
+    public double getLongitudeRadians() {
+        return longitudeRadians;
+    }
+
+    public double getCosLatitude() {
+        return cosLatitude;
+    }
+
+    public long[] getAmenityMask() {
+        return amenityMask;
+    }
+
+    public int getAmenityCount() {
+        return amenityCount;
+    }
+}
@@ -1,39 +1,250 @@
 package com.roomierent.backend.util.datastructures;
 
-import com.roomierent.backend.model.entity.Property;
 import com.roomierent.backend.util.SimilarityCalculator;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Grafo de similitud entre propiedades
  * Implementa K-Nearest Neighbors (KNN) para recomendaciones
+ * Las aristas se guardan en formato CSR (ver CsrSimilarityGraph) con los
+ * vecinos ya ordenados por similitud, así las consultas no ordenan nada
+ *
+ * Los lectores usan el estado publicado en una referencia atómica: nunca se
+ * bloquean ni ven un grafo a medio construir. Un grafo completo se publica de
+ * una sola vez (replaceGraph)
+ *
+ * Los cambios incrementales no copian el CSR: reemplazan solo las filas afectadas
+ * (el nodo y sus vecinos) en un overlay por nodo que se consulta antes que el CSR.
+ * Cada fila se reemplaza de forma atómica. Cuando el overlay supera una fracción
+ * de los nodos se compacta en un CSR nuevo, así el costo O(V + E) se amortiza
+ * entre muchos cambios
  */
 @Component
 public class PropertyGraph {
 
-    // Nodos del grafo: propertyId -> Set de vecinos con similitud
-    private final Map<Long, Map<Long, Double>> adjacencyList;
+    // Pesos de cada componente de la similitud (suman 1.0)
+    private static final double PRICE_WEIGHT = 0.25;
+    private static final double LOCATION_WEIGHT = 0.30;
+    private static final double AMENITIES_WEIGHT = 0.20;
+    private static final double COSINE_WEIGHT = 0.25;
 
-    public PropertyGraph() {
-        this.adjacencyList = new HashMap<>();
+    // Filas en el overlay antes de compactar: al menos este mínimo o 1/8 de los nodos
+    private static final int MIN_COMPACTION_ROWS = 64;
+    private static final int COMPACTION_DIVISOR = 8;
+
+    private final AtomicReference<State> current =
+            new AtomicReference<>(new State(CsrSimilarityGraph.EMPTY));
+
+    /**
+     * Publica un grafo completo construido aparte (los lectores pasan al nuevo de golpe)
+     */
+    public synchronized void replaceGraph(CsrSimilarityGraph graph) {
+        current.set(new State(graph));
+    }
+
+    /**
+     * Grafo actual en formato CSR, para guardarlo o publicarlo completo
+     * Si hay cambios incrementales pendientes los compacta primero (O(V + E))
+     */
+    public synchronized CsrSimilarityGraph snapshot() {
+        State state = current.get();
+        if (state.overlay.isEmpty()) {
+            return state.base;
+        }
+        return compact(state).base;
+    }
+
+    /**
+     * Indica si la propiedad ya es un nodo del grafo
+     */
+    public boolean containsProperty(Long propertyId) {
+        return current.get().contains(propertyId);
+    }
+
+    /**
+     * Elimina una propiedad y todas sus aristas (sin recalcular similitudes)
+     * Solo reescribe las filas de sus vecinos
+     *
+     * @return IDs cuyas filas cambiaron (la propiedad y sus antiguos vecinos)
+     */
+    public synchronized Set<Long> removeProperty(Long propertyId) {
+        State state = current.get();
+        Set<Long> affected = new HashSet<>();
+        if (!state.contains(propertyId)) {
+            return affected;
+        }
+
+        affected.add(propertyId);
+        long[] oldNeighbors = state.row(propertyId).neighborIds();
+        for (long neighborId : oldNeighbors) {
+            state.put(neighborId, state.row(neighborId).without(propertyId));
+            affected.add(neighborId);
+        }
+
+        state.edgeDelta -= oldNeighbors.length;
+        state.nodeDelta--;
+        state.put(propertyId, Row.REMOVED);
+        compactIfNeeded(state);
+        return affected;
     }
 
     /**
-     * Agrega una propiedad al grafo
+     * Reemplaza todas las aristas de una propiedad (alta o cambio de atributos)
+     * Crea el nodo si no existe; ignora vecinos que no están en el grafo.
+     * Solo reescribe la fila de la propiedad y las de sus vecinos anteriores y nuevos
+     *
+     * @return IDs cuyas filas cambiaron
      */
-    public void addProperty(Long propertyId) {
-        adjacencyList.putIfAbsent(propertyId, new HashMap<>());
+    public Set<Long> replaceEdges(Long propertyId, double[] featureVector, Map<Long, Double> similarities) {
+        return replaceEdges(propertyId, featureVector, similarities, 0);
     }
 
     /**
-     * Agrega una arista de similitud entre dos propiedades
+     * Igual que replaceEdges, pero mantiene el criterio del modo KNN: una arista queda
+     * si está entre los primeros rowLimit vecinos de alguno de sus extremos. Al insertar
+     * la propiedad en una fila que pasa de rowLimit se quitan las aristas sobrantes
+     * de esa fila que tampoco están en el top del otro extremo (0 = sin límite)
      */
-    public void addSimilarityEdge(Long property1Id, Long property2Id, double similarity) {
-        // Agregar arista bidireccional
-        adjacencyList.get(property1Id).put(property2Id, similarity);
-        adjacencyList.get(property2Id).put(property1Id, similarity);
+    public synchronized Set<Long> replaceEdges(Long propertyId, double[] featureVector,
+                                               Map<Long, Double> similarities, int rowLimit) {
+        State state = current.get();
+        Set<Long> affected = new HashSet<>();
+        affected.add(propertyId);
+
+        // 1. Fila nueva del nodo (solo vecinos que existen)
+        long[] neighborIds = new long[similarities.size()];
+        float[] weights = new float[similarities.size()];
+        int count = 0;
+        for (Map.Entry<Long, Double> edge : similarities.entrySet()) {
+            long neighborId = edge.getKey();
+            if (neighborId != propertyId && state.contains(neighborId)) {
+                neighborIds[count] = neighborId;
+                weights[count++] = edge.getValue().floatValue();
+            }
+        }
+        Row updated = Row.sorted(neighborIds, weights, count, toFloats(featureVector));
+
+        // 2. Quitar la arista de los vecinos que ya no lo son
+        boolean existed = state.contains(propertyId);
+        Row previous = existed ? state.row(propertyId) : Row.EMPTY;
+        for (long oldNeighbor : previous.neighborIds()) {
+            if (updated.indexOf(oldNeighbor) < 0) {
+                state.put(oldNeighbor, state.row(oldNeighbor).without(propertyId));
+                affected.add(oldNeighbor);
+            }
+        }
+
+        // 3. Insertar (o actualizar el peso) en la fila de cada vecino nuevo
+        for (int k = 0; k < updated.size(); k++) {
+            long neighborId = updated.neighborIdAt(k);
+            state.put(neighborId, state.row(neighborId).with(propertyId, updated.weightAt(k)));
+            affected.add(neighborId);
+        }
+
+        state.edgeDelta += updated.size() - previous.size();
+        if (!existed) {
+            state.nodeDelta++;
+        }
+        state.put(propertyId, updated);
+
+        // 4. Recortar las filas de los vecinos que quedaron por encima del límite
+        if (rowLimit > 0) {
+            for (int k = 0; k < updated.size(); k++) {
+                trimRow(state, updated.neighborIdAt(k), rowLimit, affected);
+            }
+        }
+
+        compactIfNeeded(state);
+        return affected;
+    }
+
+    /**
+     * Quita de la fila las aristas con rango >= rowLimit que tampoco están entre
+     * los primeros rowLimit vecinos del otro extremo
+     */
+    private static void trimRow(State state, long propertyId, int rowLimit, Set<Long> affected) {
+        Row row = state.row(propertyId);
+        for (int k = row.size() - 1; k >= rowLimit; k--) {
+            long neighborId = row.neighborIdAt(k);
+            Row neighborRow = state.row(neighborId);
+            int rankInNeighbor = neighborRow.indexOf(propertyId);
+            if (rankInNeighbor >= rowLimit) {
+                row = row.without(neighborId);
+                state.put(neighborId, neighborRow.without(propertyId));
+                state.edgeDelta--;
+                affected.add(neighborId);
+            }
+        }
+        state.put(propertyId, row);
+    }
+
+    /**
+     * Similitud del vecino en la posición rank de la fila (0 = el más similar)
+     * -infinito si la propiedad no está o su fila tiene menos vecinos
+     */
+    public double neighborSimilarityAtRank(long propertyId, int rank) {
+        State state = current.get();
+        if (!state.contains(propertyId)) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        Row row = state.row(propertyId);
+        return rank < row.size() ? row.weightAt(rank) : Double.NEGATIVE_INFINITY;
+    }
+
+    private void compactIfNeeded(State state) {
+        int limit = Math.max(MIN_COMPACTION_ROWS, state.nodeCount() / COMPACTION_DIVISOR);
+        if (state.overlay.size() > limit) {
+            compact(state);
+        }
+    }
+
+    /**
+     * Compila base + overlay en un CSR nuevo y lo publica con un overlay vacío
+     */
+    private State compact(State state) {
+        CsrSimilarityGraph base = state.base;
+        CsrSimilarityGraph.Builder builder = CsrSimilarityGraph.builder();
+
+        for (int index = 0; index < base.nodeCount(); index++) {
+            long id = base.idAt(index);
+            if (!state.overlay.containsKey(id)) {
+                addNodeWithEdges(builder, id, state.row(id));
+            }
+        }
+        for (Map.Entry<Long, Row> patched : state.overlay.entrySet()) {
+            if (patched.getValue() != Row.REMOVED) {
+                addNodeWithEdges(builder, patched.getKey(), patched.getValue());
+            }
+        }
+
+        State compacted = new State(builder.build());
+        current.set(compacted);
+        return compacted;
+    }
+
+    // Cada arista está en las dos filas: se agrega solo desde el extremo de id menor
+    private static void addNodeWithEdges(CsrSimilarityGraph.Builder builder, long id, Row row) {
+        builder.addNode(id, row.features());
+        for (int k = 0; k < row.size(); k++) {
+            if (row.neighborIdAt(k) > id) {
+                builder.addEdge(id, row.neighborIdAt(k), row.weightAt(k));
+            }
+        }
+    }
+
+    private static float[] toFloats(double[] vector) {
+        if (vector == null) {
+            return null;
+        }
+        float[] floats = new float[vector.length];
+        for (int d = 0; d < vector.length; d++) {
+            floats[d] = (float) vector[d];
+        }
+        return floats;
     }
 
     /**
@@ -45,22 +256,19 @@ public class PropertyGraph {
             double minSimilarity,
             int limit
     ) {
-        if (!adjacencyList.containsKey(propertyId)) {
+        State state = current.get();
+        if (!state.contains(propertyId)) {
             return new ArrayList<>();
         }
 
-        // Obtener vecinos directos ordenados por similitud
-        Map<Long, Double> neighbors = adjacencyList.get(propertyId);
-
-        List<Map.Entry<Long, Double>> sortedNeighbors = new ArrayList<>(neighbors.entrySet());
-        sortedNeighbors.sort((a, b) -> Double.compare(b.getValue(), a.getValue()));
-
-        // Filtrar por similitud mínima y limitar resultados
+        // Los vecinos ya están ordenados: basta con recorrer la fila hasta el límite
+        Row row = state.row(propertyId);
         List<Long> similarProperties = new ArrayList<>();
-        for (Map.Entry<Long, Double> entry : sortedNeighbors) {
-            if (entry.getValue() >= minSimilarity && similarProperties.size() < limit) {
-                similarProperties.add(entry.getKey());
+        for (int k = 0; k < row.size() && similarProperties.size() < limit; k++) {
+            if (row.weightAt(k) < minSimilarity) {
+                break;
             }
+            similarProperties.add(row.neighborIdAt(k));
         }
 
         return similarProperties;
@@ -69,12 +277,20 @@ public class PropertyGraph {
     /**
      * Calcula la similitud entre dos propiedades
      */
-    public static double calculateSimilarity(Property p1, Property p2) {
+    public static double calculateSimilarity(PropertyFeatures p1, PropertyFeatures p2) {
+        return calculateSimilarity(p1, p2, SimilarityCalculator.calculateCosineSimilarity(p1, p2));
+    }
+
+    /**
+     * Igual que calculateSimilarity pero con el coseno ya calculado
+     * (lo usa la construcción del grafo, que obtiene los cosenos en lote con CosineKernel)
+     */
+    public static double calculateSimilarity(PropertyFeatures p1, PropertyFeatures p2, double cosineScore) {
         // Pesos para cada componente de similitud
-        double priceWeight = 0.25;
-        double locationWeight = 0.30;
-        double amenitiesWeight = 0.20;
-        double cosineWeight = 0.25;
+        double priceWeight = PRICE_WEIGHT;
+        double locationWeight = LOCATION_WEIGHT;
+        double amenitiesWeight = AMENITIES_WEIGHT;
+        double cosineWeight = COSINE_WEIGHT;
 
         // Componente 1: Similitud de precio
         double priceScore = calculatePriceSimilarity(p1, p2);
@@ -85,8 +301,7 @@ public class PropertyGraph {
         // Componente 3: Similitud de amenities (Jaccard)
         double amenitiesScore = SimilarityCalculator.calculateAmenitiesSimilarity(p1, p2);
 
-        // Componente 4: Similitud de coseno (características generales)
-        double cosineScore = SimilarityCalculator.calculateCosineSimilarity(p1, p2);
+        // Componente 4: Similitud de coseno (características generales), recibida como parámetro
 
         // Similitud total ponderada
         return (priceScore * priceWeight) +
@@ -95,20 +310,33 @@ public class PropertyGraph {
                 (cosineScore * cosineWeight);
     }
 
+    /**
+     * Cota superior barata de calculateSimilarity: precio y ubicación exactos,
+     * amenities y coseno con su valor máximo (1.0). Evita Jaccard y los vectores
+     */
+    public static double calculateSimilarityUpperBound(PropertyFeatures p1, PropertyFeatures p2) {
+        return calculatePriceSimilarity(p1, p2) * PRICE_WEIGHT +
+                SimilarityCalculator.calculateLocationSimilarity(p1, p2) * LOCATION_WEIGHT +
+                AMENITIES_WEIGHT + COSINE_WEIGHT;
+    }
+
     /**
      * Calcula similitud de precio (Gaussian similarity)
      */
-    private static double calculatePriceSimilarity(Property p1, Property p2) {
-        if (p1.getPrice() == null || p2.getPrice() == null) {
+    private static double calculatePriceSimilarity(PropertyFeatures p1, PropertyFeatures p2) {
+        if (!p1.hasPrice() || !p2.hasPrice()) {
             return 0.5;
         }
 
-        double price1 = p1.getPrice().doubleValue();
-        double price2 = p2.getPrice().doubleValue();
+        long price1 = p1.getPriceCents();
+        long price2 = p2.getPriceCents();
+        long sum = price1 + price2;
+        if (sum <= 0) {
+            return price1 == price2 ? 1.0 : 0.0;
+        }
 
-        // Diferencia relativa
-        double avgPrice = (price1 + price2) / 2;
-        double relativeDiff = Math.abs(price1 - price2) / avgPrice;
+        // Diferencia relativa al promedio: |p1 - p2| / ((p1 + p2) / 2), en centavos
+        double relativeDiff = 2.0 * Math.abs(price1 - price2) / sum;
 
         // Función Gaussiana: e^(-(diff^2) / 2σ^2)
         // σ = 0.3 (30% de diferencia da 0.6 de similitud)
@@ -119,30 +347,240 @@ public class PropertyGraph {
     /**
      * Limpia el grafo
      */
-    public void clear() {
-        adjacencyList.clear();
+    public synchronized void clear() {
+        current.set(new State(CsrSimilarityGraph.EMPTY));
     }
 
     /**
      * Retorna el número de nodos en el grafo
      */
     public int size() {
-        return adjacencyList.size();
+        return current.get().nodeCount();
+    }
+
+    /**
+     * Retorna el número de aristas (no dirigidas) del grafo
+     */
+    public int edgeCount() {
+        State state = current.get();
+        return state.base.edgeCount() + state.edgeDelta;
     }
 
     /**
      * Obtiene los vecinos de una propiedad ordenados por similitud
      */
     public List<Map.Entry<Long, Double>> getNeighborsSorted(Long propertyId) {
-        if (!adjacencyList.containsKey(propertyId)) {
+        State state = current.get();
+        if (!state.contains(propertyId)) {
             return new ArrayList<>();
         }
 
-        List<Map.Entry<Long, Double>> neighbors =
-                new ArrayList<>(adjacencyList.get(propertyId).entrySet());
+        Row row = state.row(propertyId);
+        List<Map.Entry<Long, Double>> neighbors = new ArrayList<>(row.size());
 
-        neighbors.sort((a, b) -> Double.compare(b.getValue(), a.getValue()));
+        for (int k = 0; k < row.size(); k++) {
+            neighbors.add(new AbstractMap.SimpleImmutableEntry<>(
+                    row.neighborIdAt(k),
+                    (double) row.weightAt(k)
+            ));
+        }
 
         return neighbors;
     }
-}
\ No newline at end of file
+
+    /**
+     * CSR publicado más las filas reemplazadas desde entonces
+     * El overlay lo escribe un solo hilo (métodos synchronized) y cada fila es inmutable
+     */
+    private static final class State {
+
+        private final CsrSimilarityGraph base;
+        private final Map<Long, Row> overlay = new ConcurrentHashMap<>();
+        // Diferencia de nodos y aristas no dirigidas respecto del CSR base
+        private volatile int nodeDelta;
+        private volatile int edgeDelta;
+
+        private State(CsrSimilarityGraph base) {
+            this.base = base;
+        }
+
+        private boolean contains(long propertyId) {
+            Row patched = overlay.get(propertyId);
+            if (patched != null) {
+                return patched != Row.REMOVED;
+            }
+            return base.indexOf(propertyId) >= 0;
+        }
+
+        /**
+         * Fila actual del nodo (vacía si no existe)
+         */
+        private Row row(long propertyId) {
+            Row patched = overlay.get(propertyId);
+            if (patched != null) {
+                return patched == Row.REMOVED ? Row.EMPTY : patched;
+            }
+            int index = base.indexOf(propertyId);
+            return index < 0 ? Row.EMPTY : Row.of(base, index);
+        }
+
+        private void put(long propertyId, Row row) {
+            // Un nodo nuevo que se elimina antes de compactar no necesita marca
+            if (row == Row.REMOVED && base.indexOf(propertyId) < 0) {
+                overlay.remove(propertyId);
+            } else {
+                overlay.put(propertyId, row);
+            }
+        }
+
+        private int nodeCount() {
+            return base.nodeCount() + nodeDelta;
+        }
+    }
+
+    /**
+     * Fila de vecinos ordenada por similitud descendente (desempate: id menor),
+     * el mismo orden que usa el CSR. Es una vista de la fila del CSR base (sin copiar)
+     * o una fila reemplazada del overlay con sus propios arreglos
+     */
+    private static final class Row {
+
+        private static final Row EMPTY = new Row(new long[0], new float[0], null);
+        private static final Row REMOVED = new Row(new long[0], new float[0], null);
+
+        // Vista sobre el CSR (graph != null) ...
+        private final CsrSimilarityGraph graph;
+        private final int index;
+        private final int start;
+        private final int length;
+        // ... o arreglos propios
+        private final long[] neighborIds;
+        private final float[] weights;
+        private final float[] features;
+
+        private Row(long[] neighborIds, float[] weights, float[] features) {
+            this.graph = null;
+            this.index = -1;
+            this.start = 0;
+            this.length = neighborIds.length;
+            this.neighborIds = neighborIds;
+            this.weights = weights;
+            this.features = features;
+        }
+
+        private Row(CsrSimilarityGraph graph, int index) {
+            this.graph = graph;
+            this.index = index;
+            this.start = graph.rowStart(index);
+            this.length = graph.rowEnd(index) - start;
+            this.neighborIds = null;
+            this.weights = null;
+            this.features = null;
+        }
+
+        private static Row of(CsrSimilarityGraph graph, int index) {
+            return new Row(graph, index);
+        }
+
+        private static Row sorted(long[] neighborIds, float[] weights, int count, float[] features) {
+            Integer[] order = new Integer[count];
+            for (int k = 0; k < count; k++) {
+                order[k] = k;
+            }
+            Arrays.sort(order, (a, b) -> weights[a] != weights[b]
+                    ? Float.compare(weights[b], weights[a])
+                    : Long.compare(neighborIds[a], neighborIds[b]));
+
+            long[] sortedIds = new long[count];
+            float[] sortedWeights = new float[count];
+            for (int k = 0; k < count; k++) {
+                sortedIds[k] = neighborIds[order[k]];
+                sortedWeights[k] = weights[order[k]];
+            }
+            return new Row(sortedIds, sortedWeights, features);
+        }
+
+        private int size() {
+            return length;
+        }
+
+        private long neighborIdAt(int k) {
+            return graph != null ? graph.neighborIdAt(start + k) : neighborIds[k];
+        }
+
+        private float weightAt(int k) {
+            return graph != null ? graph.weightAt(start + k) : weights[k];
+        }
+
+        /**
+         * Vector de características del nodo (null si el grafo no los tiene)
+         */
+        private float[] features() {
+            return graph != null ? graph.featureVectorAt(index) : features;
+        }
+
+        private long[] neighborIds() {
+            long[] ids = new long[length];
+            for (int k = 0; k < length; k++) {
+                ids[k] = neighborIdAt(k);
+            }
+            return ids;
+        }
+
+        private int indexOf(long neighborId) {
+            for (int k = 0; k < length; k++) {
+                if (neighborIdAt(k) == neighborId) {
+                    return k;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Copia sin el vecino (la misma fila si no estaba)
+         */
+        private Row without(long neighborId) {
+            int removed = indexOf(neighborId);
+            if (removed < 0) {
+                return this;
+            }
+            return copy(removed, -1, 0L, 0f);
+        }
+
+        /**
+         * Copia con el vecino en su posición según el peso (reemplaza el peso anterior)
+         */
+        private Row with(long neighborId, float weight) {
+            Row base = without(neighborId);
+            int position = 0;
+            while (position < base.length &&
+                    (base.weightAt(position) > weight ||
+                            (base.weightAt(position) == weight && base.neighborIdAt(position) < neighborId))) {
+                position++;
+            }
+            return base.copy(-1, position, neighborId, weight);
+        }
+
+        /**
+         * Copia la fila saltando la posición skip y/o insertando un vecino en insertAt (-1 = ninguno)
+         */
+        private Row copy(int skip, int insertAt, long insertedId, float insertedWeight) {
+            int size = length - (skip >= 0 ? 1 : 0) + (insertAt >= 0 ? 1 : 0);
+            long[] ids = new long[size];
+            float[] newWeights = new float[size];
+
+            int out = 0;
+            for (int k = 0; k <= length; k++) {
+                if (k == insertAt) {
+                    ids[out] = insertedId;
+                    newWeights[out++] = insertedWeight;
+                }
+                if (k < length && k != skip) {
+                    ids[out] = neighborIdAt(k);
+                    newWeights[out++] = weightAt(k);
+                }
+            }
+            return new Row(ids, newWeights, features());
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.roomierent.backend.util.datastructures;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Diccionario global de términos normalizados (ciudades, barrios, amenities)
+ * Asigna a cada término un id entero estable para poder comparar con primitivos
+ */
+public final class TermDictionary {
+
+    public static final TermDictionary CITIES = new TermDictionary();
+    public static final TermDictionary NEIGHBORHOODS = new TermDictionary();
+    public static final TermDictionary AMENITIES = new TermDictionary();
+
+    private static final int[] NO_IDS = new int[0];
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    private TermDictionary() {
+    }
+
+    /**
+     * Normaliza un término: sin espacios a los lados y en minúsculas
+     */
+    public static String normalize(String term) {
+        return term == null ? "" : term.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Retorna el id del término, registrándolo si es nuevo (-1 si está vacío)
+     */
+    public int intern(String term) {
+        String normalized = normalize(term);
+        if (normalized.isEmpty()) {
+            return -1;
+        }
+        return ids.computeIfAbsent(normalized, key -> nextId.getAndIncrement());
+    }
+
+    /**
+     * Retorna el id del término sin registrarlo (-1 si no existe)
+     */
+    public int idOf(String term) {
+        String normalized = normalize(term);
+        if (normalized.isEmpty()) {
+            return -1;
+        }
+        return ids.getOrDefault(normalized, -1);
+    }
+
+    /**
+     * Registra una lista separada por comas y retorna los ids ordenados y sin repetir
+     */
+    public int[] internAll(String commaSeparated) {
+        if (commaSeparated == null || commaSeparated.isEmpty()) {
+            return NO_IDS;
+        }
+
+        String[] parts = commaSeparated.split(",");
+        int[] result = new int[parts.length];
+        int count = 0;
+
+        for (String part : parts) {
+            int id = intern(part);
+            if (id >= 0) {
+                result[count++] = id;
+            }
+        }
+
+        return sortedUnique(result, count);
+    }
+
+    /**
+     * Busca los ids de una lista separada por comas sin registrar términos nuevos
+     * (los términos desconocidos se omiten); retorna ids ordenados y sin repetir
+     */
+    public int[] idsOf(String commaSeparated) {
+        if (commaSeparated == null || commaSeparated.isEmpty()) {
+            return NO_IDS;
+        }
+
+        String[] parts = commaSeparated.split(",");
+        int[] result = new int[parts.length];
+        int count = 0;
+
+        for (String part : parts) {
+            int id = idOf(part);
+            if (id >= 0) {
+                result[count++] = id;
+            }
+        }
+
+        return sortedUnique(result, count);
+    }
+
+    /**
+     * Número de términos distintos de la lista que no están registrados
+     */
+    public int unknownCount(String commaSeparated) {
+        if (commaSeparated == null || commaSeparated.isEmpty()) {
+            return 0;
+        }
+
+        Set<String> unknown = new HashSet<>();
+        for (String part : commaSeparated.split(",")) {
+            String normalized = normalize(part);
+            if (!normalized.isEmpty() && !ids.containsKey(normalized)) {
+                unknown.add(normalized);
+            }
+        }
+        return unknown.size();
+    }
+
+    /**
+     * Número de términos registrados
+     */
+    public int size() {
+        return nextId.get();
+    }
+
+    /**
+     * Ordena los primeros count ids y elimina duplicados
+     */
+    private static int[] sortedUnique(int[] ids, int count) {
+        if (count == 0) {
+            return NO_IDS;
+        }
+
+        Arrays.sort(ids, 0, count);
+
+        int unique = 1;
+        for (int i = 1; i < count; i++) {
+            if (ids[i] != ids[unique - 1]) {
+                ids[unique++] = ids[i];
+            }
+        }
+
+        return Arrays.copyOf(ids, unique);
+    }
+}
@@ -0,0 +1,175 @@
+package com.roomierent.backend.util.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * Selección de los k mejores elementos con un min-heap acotado de primitivos (score, índice)
+ * Costo O(n log k) y sin crear objetos por candidato
+ * Desempate: a igual score gana el índice menor (mismo orden que un sort estable)
+ *
+ * Los arreglos crecen a medida que llegan candidatos (hasta k), así un k grande
+ * no reserva memoria que nunca se usa
+ */
+public final class TopKSelector {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int capacity;
+    private double[] scores;
+    private int[] indexes;
+    private int size;
+    private boolean sorted;
+
+    public TopKSelector(int k) {
+        this.capacity = Math.max(k, 0);
+        this.scores = new double[Math.min(capacity, INITIAL_CAPACITY)];
+        this.indexes = new int[scores.length];
+    }
+
+    /**
+     * Selector para a lo sumo candidates elementos: k se limita a esa cantidad
+     */
+    public TopKSelector(int k, int candidates) {
+        this(Math.min(k, Math.max(candidates, 0)));
+    }
+
+    /**
+     * Ofrece un candidato; retorna true si entra en el top-k actual
+     */
+    public boolean offer(double score, int index) {
+        if (sorted) {
+            throw new IllegalStateException("El selector ya fue ordenado");
+        }
+
+        if (size < capacity) {
+            if (size == scores.length) {
+                grow();
+            }
+            scores[size] = score;
+            indexes[size] = index;
+            siftUp(size++);
+            return true;
+        }
+
+        if (capacity == 0 || !isBetter(score, index, scores[0], indexes[0])) {
+            return false;
+        }
+
+        scores[0] = score;
+        indexes[0] = index;
+        siftDown(0, size);
+        return true;
+    }
+
+    /**
+     * Agrega todos los elementos de otro selector (para combinar resultados parciales)
+     */
+    public void merge(TopKSelector other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.scores[i], other.indexes[i]);
+        }
+    }
+
+    /**
+     * Peor score que hoy sigue dentro del top-k (-infinito si aún hay espacio)
+     */
+    public double threshold() {
+        return size < capacity ? Double.NEGATIVE_INFINITY : scores[0];
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Ordena el contenido de mejor a peor (heapsort in-place); luego no admite más ofertas
+     */
+    public TopKSelector sortDescending() {
+        if (!sorted) {
+            for (int end = size - 1; end > 0; end--) {
+                swap(0, end);
+                siftDown(0, end);
+            }
+            sorted = true;
+        }
+        return this;
+    }
+
+    /**
+     * Índice del elemento en la posición rank (requiere sortDescending)
+     */
+    public int indexAt(int rank) {
+        checkSorted();
+        return indexes[rank];
+    }
+
+    /**
+     * Score del elemento en la posición rank (requiere sortDescending)
+     */
+    public double scoreAt(int rank) {
+        checkSorted();
+        return scores[rank];
+    }
+
+    private void checkSorted() {
+        if (!sorted) {
+            throw new IllegalStateException("Llama sortDescending() antes de leer el ranking");
+        }
+    }
+
+    private static boolean isBetter(double score, int index, double otherScore, int otherIndex) {
+        int comparison = Double.compare(score, otherScore);
+        return comparison > 0 || (comparison == 0 && index < otherIndex);
+    }
+
+    private boolean isWorse(int a, int b) {
+        return isBetter(scores[b], indexes[b], scores[a], indexes[a]);
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (!isWorse(position, parent)) {
+                return;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position, int limit) {
+        while (true) {
+            int left = 2 * position + 1;
+            if (left >= limit) {
+                return;
+            }
+            int right = left + 1;
+            int worst = (right < limit && isWorse(right, left)) ? right : left;
+            if (!isWorse(worst, position)) {
+                return;
+            }
+            swap(position, worst);
+            position = worst;
+        }
+    }
+
+    private void grow() {
+        int length = (int) Math.min(capacity, Math.max(INITIAL_CAPACITY, 2L * scores.length));
+        scores = Arrays.copyOf(scores, length);
+        indexes = Arrays.copyOf(indexes, length);
+    }
+
+    private void swap(int a, int b) {
+        double score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+
+        int index = indexes[a];
+        indexes[a] = indexes[b];
+        indexes[b] = index;
+    }
+}
@@ -0,0 +1,177 @@
+package com.roomierent.backend.service.recommendation;
+
+import com.roomierent.backend.model.entity.PropertyType;
+import com.roomierent.backend.util.datastructures.PropertyCatalogSnapshot;
+import com.roomierent.backend.util.datastructures.PropertyFeatures;
+import com.roomierent.backend.util.datastructures.PropertyGraph;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PropertyGraphBuilderTest {
+
+    private static final double THRESHOLD = 0.2;
+    // El builder calcula el coseno en float con el CosineKernel: los pares a esta distancia
+    // del umbral pueden quedar de cualquier lado respecto de la similitud en double
+    private static final double KERNEL_TOLERANCE = 1e-5;
+
+    @Test
+    void knnKeepsExactlyThePairsInSomeTopK() {
+        int maxNeighbors = 5;
+        List<PropertyFeatures> properties = randomCatalog(300, new Random(3)).getFeatureList();
+        PropertyGraphBuilder builder = new PropertyGraphBuilder(
+                PropertyGraphBuilder.BuildMode.KNN, 0.05, maxNeighbors, 2);
+
+        try {
+            PropertyGraphBuilder.Result result = builder.build(properties, THRESHOLD,
+                    PropertyGraphBuilder.BuildProgress.NONE);
+
+            Set<String> actual = new HashSet<>();
+            PropertyGraphBuilder.EdgeBuffer edges = result.getEdges();
+            for (int e = 0; e < edges.size(); e++) {
+                actual.add(pair(edges.getSource(e), edges.getTarget(e)));
+            }
+
+            assertEquals(bruteForceKnn(properties, maxNeighbors), actual);
+            // La poda evita similitudes completas respecto de todos los pares
+            long allPairs = (long) properties.size() * (properties.size() - 1);
+            assertTrue(result.getComparisons() < allPairs);
+        } finally {
+            builder.shutdown();
+        }
+    }
+
+    @Test
+    void fullModeMatchesPairwiseSimilarity() {
+        List<PropertyFeatures> properties = randomCatalog(120, new Random(5)).getFeatureList();
+        PropertyGraphBuilder builder = new PropertyGraphBuilder(
+                PropertyGraphBuilder.BuildMode.FULL, 0.05, 20, 1);
+
+        try {
+            PropertyGraphBuilder.EdgeBuffer edges = builder.build(properties, THRESHOLD,
+                    PropertyGraphBuilder.BuildProgress.NONE).getEdges();
+
+            Set<String> expected = new HashSet<>();
+            Set<String> borderline = new HashSet<>();
+            for (int i = 0; i < properties.size(); i++) {
+                for (int j = i + 1; j < properties.size(); j++) {
+                    double similarity = PropertyGraph.calculateSimilarity(properties.get(i), properties.get(j));
+                    String pair = pair(properties.get(i).getId(), properties.get(j).getId());
+                    if (Math.abs(similarity - THRESHOLD) <= KERNEL_TOLERANCE) {
+                        borderline.add(pair);
+                    } else if (similarity > THRESHOLD) {
+                        expected.add(pair);
+                    }
+                }
+            }
+
+            Set<String> actual = new HashSet<>();
+            for (int e = 0; e < edges.size(); e++) {
+                actual.add(pair(edges.getSource(e), edges.getTarget(e)));
+            }
+            // Fuera de la franja del umbral las aristas son exactamente los pares que lo superan
+            actual.removeAll(borderline);
+            assertTrue(expected.size() > 0);
+            assertEquals(expected, actual);
+        } finally {
+            builder.shutdown();
+        }
+    }
+
+    @Test
+    void blockedModeIsTheSameWithOneOrManyWorkers() {
+        // Celdas pequeñas: muchos bloques por ciudad, repartidos entre los hilos del pool
+        List<PropertyFeatures> properties = randomCatalog(400, new Random(9)).getFeatureList();
+        PropertyGraphBuilder sequential = new PropertyGraphBuilder(
+                PropertyGraphBuilder.BuildMode.BLOCKED, 0.01, 20, 1);
+        PropertyGraphBuilder parallel = new PropertyGraphBuilder(
+                PropertyGraphBuilder.BuildMode.BLOCKED, 0.01, 20, 4);
+
+        try {
+            Set<String> expected = edgeSet(sequential.build(properties, THRESHOLD,
+                    PropertyGraphBuilder.BuildProgress.NONE).getEdges());
+            Set<String> actual = edgeSet(parallel.build(properties, THRESHOLD,
+                    PropertyGraphBuilder.BuildProgress.NONE).getEdges());
+
+            assertTrue(expected.size() > 0);
+            assertEquals(expected, actual);
+        } finally {
+            sequential.shutdown();
+            parallel.shutdown();
+        }
+    }
+
+    private static Set<String> edgeSet(PropertyGraphBuilder.EdgeBuffer edges) {
+        Set<String> pairs = new HashSet<>();
+        for (int e = 0; e < edges.size(); e++) {
+            pairs.add(pair(edges.getSource(e), edges.getTarget(e)) + "=" + (float) edges.getWeight(e));
+        }
+        return pairs;
+    }
+
+    /**
+     * Un par queda si está en el top-K (por similitud, desempate por índice) de alguno
+     */
+    private static Set<String> bruteForceKnn(List<PropertyFeatures> properties, int maxNeighbors) {
+        Set<String> pairs = new HashSet<>();
+        for (int i = 0; i < properties.size(); i++) {
+            List<double[]> scored = new ArrayList<>();
+            for (int j = 0; j < properties.size(); j++) {
+                if (j == i) {
+                    continue;
+                }
+                double similarity = PropertyGraph.calculateSimilarity(properties.get(i), properties.get(j));
+                if (similarity > THRESHOLD) {
+                    scored.add(new double[]{similarity, j});
+                }
+            }
+            scored.sort((a, b) -> a[0] != b[0] ? Double.compare(b[0], a[0]) : Double.compare(a[1], b[1]));
+            for (int rank = 0; rank < Math.min(maxNeighbors, scored.size()); rank++) {
+                int j = (int) scored.get(rank)[1];
+                pairs.add(pair(properties.get(i).getId(), properties.get(j).getId()));
+            }
+        }
+        return pairs;
+    }
+
+    private static String pair(long a, long b) {
+        return Math.min(a, b) + "-" + Math.max(a, b);
+    }
+
+    static PropertyCatalogSnapshot randomCatalog(int size, Random random) {
+        String[] cities = {"Bogotá", "Medellín", "Cali"};
+        String[] amenities = {"wifi", "gym", "pool", "parking", "elevator"};
+        PropertyCatalogSnapshot.Builder builder = PropertyCatalogSnapshot.builder(1, size);
+
+        for (long id = 1; id <= size; id++) {
+            StringBuilder amenityList = new StringBuilder();
+            for (String amenity : amenities) {
+                if (random.nextBoolean()) {
+                    amenityList.append(amenityList.length() == 0 ? "" : ",").append(amenity);
+                }
+            }
+            builder.add(
+                    id,
+                    BigDecimal.valueOf(100_000 + random.nextInt(5_000_000)),
+                    1 + random.nextInt(5),
+                    1 + random.nextInt(3),
+                    30.0 + random.nextInt(200),
+                    4.6 + random.nextDouble() * 0.2,
+                    -74.1 + random.nextDouble() * 0.2,
+                    PropertyType.values()[random.nextInt(PropertyType.values().length)],
+                    cities[random.nextInt(cities.length)],
+                    "Barrio " + random.nextInt(10),
+                    amenityList.toString()
+            );
+        }
+        return builder.build();
+    }
+}
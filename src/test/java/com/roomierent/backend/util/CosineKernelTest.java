@@ -0,0 +1,116 @@
+package com.roomierent.backend.util;
+
+import com.roomierent.backend.util.datastructures.FeatureMatrix;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CosineKernelTest {
+
+    private static final int DIMENSIONS = SimilarityCalculator.FEATURE_DIMENSIONS;
+    // Los vectores se guardan como float: el error acumulado en 7 productos es < 1e-6
+    private static final double TOLERANCE = 1e-5;
+
+    @Test
+    void rangeMatchesDoubleCosine() {
+        Random random = new Random(11);
+        double[][] vectors = randomVectors(101, random);
+        FeatureMatrix matrix = matrixOf(vectors);
+
+        for (CosineKernel kernel : kernels()) {
+            for (int i = 0; i < vectors.length; i += 7) {
+                float[] query = new float[DIMENSIONS];
+                float[] out = new float[vectors.length];
+                matrix.copyRow(i, query);
+
+                // Rango que no empieza ni termina alineado al ancho del vector SIMD
+                kernel.similarities(query, matrix, 3, vectors.length, out);
+
+                for (int j = 3; j < vectors.length; j++) {
+                    assertEquals(cosine(vectors[i], vectors[j]), out[j], TOLERANCE,
+                            kernel.getName() + " fila " + i + " contra " + j);
+                }
+            }
+        }
+    }
+
+    @Test
+    void gatherMatchesDoubleCosine() {
+        Random random = new Random(13);
+        double[][] vectors = randomVectors(80, random);
+        FeatureMatrix matrix = matrixOf(vectors);
+
+        int[] rows = new int[37];
+        for (int k = 0; k < rows.length; k++) {
+            rows[k] = random.nextInt(vectors.length);
+        }
+
+        for (CosineKernel kernel : kernels()) {
+            float[] query = new float[DIMENSIONS];
+            float[] out = new float[rows.length];
+            matrix.copyRow(5, query);
+
+            kernel.similarities(query, matrix, rows, rows.length, out);
+
+            for (int k = 0; k < rows.length; k++) {
+                assertEquals(cosine(vectors[5], vectors[rows[k]]), out[k], TOLERANCE,
+                        kernel.getName() + " candidato " + rows[k]);
+            }
+        }
+    }
+
+    @Test
+    void bestKernelAgreesWithScalar() {
+        Random random = new Random(17);
+        double[][] vectors = randomVectors(64, random);
+        FeatureMatrix matrix = matrixOf(vectors);
+
+        float[] query = new float[DIMENSIONS];
+        matrix.copyRow(0, query);
+        float[] expected = new float[vectors.length];
+        float[] actual = new float[vectors.length];
+
+        new ScalarCosineKernel().similarities(query, matrix, 0, vectors.length, expected);
+        CosineKernel.best().similarities(query, matrix, 0, vectors.length, actual);
+
+        for (int j = 0; j < vectors.length; j++) {
+            assertEquals(expected[j], actual[j], TOLERANCE);
+        }
+    }
+
+    private static CosineKernel[] kernels() {
+        return new CosineKernel[]{new ScalarCosineKernel(), CosineKernel.best()};
+    }
+
+    private static double[][] randomVectors(int count, Random random) {
+        double[][] vectors = new double[count][DIMENSIONS];
+        for (double[] vector : vectors) {
+            for (int d = 0; d < DIMENSIONS; d++) {
+                vector[d] = random.nextDouble() * 2.0 - 1.0;
+            }
+        }
+        return vectors;
+    }
+
+    private static FeatureMatrix matrixOf(double[][] vectors) {
+        FeatureMatrix matrix = new FeatureMatrix(DIMENSIONS, vectors.length);
+        for (int i = 0; i < vectors.length; i++) {
+            matrix.setRow(i, vectors[i]);
+        }
+        return matrix;
+    }
+
+    private static double cosine(double[] a, double[] b) {
+        double dot = 0.0;
+        double normA = 0.0;
+        double normB = 0.0;
+        for (int d = 0; d < a.length; d++) {
+            dot += a[d] * b[d];
+            normA += a[d] * a[d];
+            normB += b[d] * b[d];
+        }
+        return dot / Math.sqrt(normA * normB);
+    }
+}
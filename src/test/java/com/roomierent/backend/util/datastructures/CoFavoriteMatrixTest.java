@@ -0,0 +1,104 @@
+package com.roomierent.backend.util.datastructures;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CoFavoriteMatrixTest {
+
+    private static final int ITEMS = 60;
+    private static final int USERS = 80;
+    private static final int MAX_NEIGHBORS = 3;
+
+    // Usuario que marca todos los ítems al inicio: fija el orden de internado
+    // en ambas matrices, así los empates del top-M se resuelven igual
+    private static final long ANCHOR_USER = 0L;
+
+    @Test
+    void addAndRemoveAreIdempotent() {
+        CoFavoriteMatrix matrix = new CoFavoriteMatrix(MAX_NEIGHBORS);
+
+        assertTrue(matrix.add(1L, 10L));
+        assertFalse(matrix.add(1L, 10L));
+        assertTrue(matrix.remove(1L, 10L));
+        assertFalse(matrix.remove(1L, 10L));
+        assertFalse(matrix.hasFavorites(1L));
+    }
+
+    @Test
+    void scoresCoFavoritesOfOtherUsers() {
+        CoFavoriteMatrix matrix = new CoFavoriteMatrix(MAX_NEIGHBORS);
+        matrix.add(1L, 10L);
+        matrix.add(1L, 20L);
+        matrix.add(2L, 10L);
+
+        // co(10, 20) = 1, freq(10) = 2, freq(20) = 1
+        assertEquals(1.0 / Math.sqrt(2.0), matrix.scoreForUser(2L).get(20L), 1e-12);
+        assertTrue(matrix.scoreForUser(1L).isEmpty());
+    }
+
+    @Test
+    void incrementalUpdatesMatchFullRebuild() {
+        Random random = new Random(13);
+        CoFavoriteMatrix incremental = new CoFavoriteMatrix(MAX_NEIGHBORS);
+        for (long item = 1; item <= ITEMS; item++) {
+            incremental.add(ANCHOR_USER, item);
+        }
+
+        Set<List<Long>> favorites = new HashSet<>();
+        for (int change = 0; change < 3000; change++) {
+            long user = 1 + random.nextInt(USERS);
+            // Algunos ítems populares para que cambien los top-M de muchas filas
+            long item = 1 + (random.nextInt(3) == 0 ? random.nextInt(5) : random.nextInt(ITEMS));
+            List<Long> pair = List.of(user, item);
+
+            if (favorites.contains(pair) && random.nextInt(3) == 0) {
+                assertTrue(incremental.remove(user, item));
+                favorites.remove(pair);
+            } else if (!favorites.contains(pair)) {
+                assertTrue(incremental.add(user, item));
+                favorites.add(pair);
+            }
+
+            if (change % 500 == 0) {
+                assertSameScores(rebuild(favorites), incremental);
+            }
+        }
+
+        assertSameScores(rebuild(favorites), incremental);
+    }
+
+    private static CoFavoriteMatrix rebuild(Set<List<Long>> favorites) {
+        List<List<Long>> pairs = new ArrayList<>();
+        for (long item = 1; item <= ITEMS; item++) {
+            pairs.add(List.of(ANCHOR_USER, item));
+        }
+        pairs.addAll(favorites);
+
+        long[] userIds = new long[pairs.size()];
+        long[] propertyIds = new long[pairs.size()];
+        for (int k = 0; k < pairs.size(); k++) {
+            userIds[k] = pairs.get(k).get(0);
+            propertyIds[k] = pairs.get(k).get(1);
+        }
+
+        CoFavoriteMatrix rebuilt = new CoFavoriteMatrix(MAX_NEIGHBORS);
+        rebuilt.addAll(userIds, propertyIds, pairs.size());
+        return rebuilt;
+    }
+
+    private static void assertSameScores(CoFavoriteMatrix expected, CoFavoriteMatrix actual) {
+        assertEquals(expected.stats(), actual.stats());
+        for (long user = 0; user <= USERS; user++) {
+            assertEquals(expected.scoreForUser(user), actual.scoreForUser(user), "usuario " + user);
+        }
+    }
+}
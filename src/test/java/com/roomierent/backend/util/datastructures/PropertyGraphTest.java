@@ -0,0 +1,171 @@
+package com.roomierent.backend.util.datastructures;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PropertyGraphTest {
+
+    @Test
+    void replaceEdgesUpdatesBothEndpoints() {
+        PropertyGraph graph = new PropertyGraph();
+        graph.replaceGraph(CsrSimilarityGraph.builder()
+                .addNode(1).addNode(2).addNode(3)
+                .addEdge(1, 2, 0.5)
+                .build());
+
+        Set<Long> affected = graph.replaceEdges(3L, null, Map.of(1L, 0.9, 2L, 0.4));
+
+        assertEquals(Set.of(1L, 2L, 3L), affected);
+        assertEquals(List.of(3L, 2L), graph.findSimilarProperties(1L, 0.0, 10));
+        assertEquals(List.of(1L, 3L), graph.findSimilarProperties(2L, 0.0, 10));
+        assertEquals(3, graph.edgeCount());
+    }
+
+    @Test
+    void removePropertyDropsItFromNeighborRows() {
+        PropertyGraph graph = new PropertyGraph();
+        graph.replaceGraph(CsrSimilarityGraph.builder()
+                .addNode(1).addNode(2).addNode(3)
+                .addEdge(1, 2, 0.5)
+                .addEdge(1, 3, 0.6)
+                .build());
+
+        Set<Long> affected = graph.removeProperty(1L);
+
+        assertEquals(Set.of(1L, 2L, 3L), affected);
+        assertFalse(graph.containsProperty(1L));
+        assertTrue(graph.findSimilarProperties(2L, 0.0, 10).isEmpty());
+        assertEquals(2, graph.size());
+        assertEquals(0, graph.edgeCount());
+    }
+
+    @Test
+    void incrementalUpdatesMatchFullBuild() {
+        Random random = new Random(7);
+        Map<Long, Map<Long, Double>> expected = new TreeMap<>();
+        CsrSimilarityGraph.Builder initial = CsrSimilarityGraph.builder();
+
+        for (long id = 1; id <= 200; id++) {
+            expected.put(id, new HashMap<>());
+            initial.addNode(id);
+        }
+        for (long a = 1; a <= 200; a++) {
+            for (long b = a + 1; b <= 200; b++) {
+                if (random.nextInt(10) == 0) {
+                    double weight = randomWeight(random);
+                    initial.addEdge(a, b, weight);
+                    expected.get(a).put(b, weight);
+                    expected.get(b).put(a, weight);
+                }
+            }
+        }
+
+        PropertyGraph graph = new PropertyGraph();
+        graph.replaceGraph(initial.build());
+
+        // Suficientes cambios para que el overlay se compacte varias veces
+        long nextId = 201;
+        for (int change = 0; change < 500; change++) {
+            List<Long> nodes = new ArrayList<>(expected.keySet());
+            long target = random.nextInt(4) == 0 ? nextId++ : nodes.get(random.nextInt(nodes.size()));
+
+            if (random.nextInt(5) == 0 && expected.containsKey(target)) {
+                graph.removeProperty(target);
+                for (Long neighbor : expected.remove(target).keySet()) {
+                    expected.get(neighbor).remove(target);
+                }
+                continue;
+            }
+
+            Map<Long, Double> edges = new HashMap<>();
+            for (Long other : nodes) {
+                if (other != target && random.nextInt(8) == 0) {
+                    edges.put(other, randomWeight(random));
+                }
+            }
+            graph.replaceEdges(target, null, edges);
+
+            Map<Long, Double> previous = expected.put(target, new HashMap<>(edges));
+            if (previous != null) {
+                for (Long neighbor : previous.keySet()) {
+                    expected.get(neighbor).remove(target);
+                }
+            }
+            for (Map.Entry<Long, Double> edge : edges.entrySet()) {
+                expected.get(edge.getKey()).put(target, edge.getValue());
+            }
+
+            if (change % 50 == 0) {
+                assertMatchesFullBuild(expected, graph);
+            }
+        }
+
+        assertMatchesFullBuild(expected, graph);
+
+        // Compactar no cambia nada
+        graph.snapshot();
+        assertMatchesFullBuild(expected, graph);
+    }
+
+    @Test
+    void rowLimitKeepsOnlyEdgesInTopOfSomeEndpoint() {
+        Random random = new Random(11);
+        int rowLimit = 3;
+        PropertyGraph graph = new PropertyGraph();
+        graph.replaceGraph(CsrSimilarityGraph.builder().addNode(0).build());
+
+        // Cada propiedad nueva se conecta con todas las anteriores (lo peor para el límite)
+        for (long id = 1; id < 60; id++) {
+            Map<Long, Double> edges = new HashMap<>();
+            for (long other = 0; other < id; other++) {
+                edges.put(other, randomWeight(random));
+            }
+            graph.replaceEdges(id, null, edges, rowLimit);
+        }
+
+        for (long id = 0; id < 60; id++) {
+            List<Map.Entry<Long, Double>> row = graph.getNeighborsSorted(id);
+            for (int rank = rowLimit; rank < row.size(); rank++) {
+                long neighbor = row.get(rank).getKey();
+                List<Long> neighborTop = graph.findSimilarProperties(neighbor, 0.0, rowLimit);
+                assertTrue(neighborTop.contains(id), "arista " + id + "-" + neighbor + " fuera de ambos top");
+            }
+        }
+    }
+
+    private static void assertMatchesFullBuild(Map<Long, Map<Long, Double>> expected, PropertyGraph graph) {
+        CsrSimilarityGraph.Builder builder = CsrSimilarityGraph.builder();
+        for (Map.Entry<Long, Map<Long, Double>> node : expected.entrySet()) {
+            builder.addNode(node.getKey());
+            for (Map.Entry<Long, Double> edge : node.getValue().entrySet()) {
+                if (edge.getKey() > node.getKey()) {
+                    builder.addEdge(node.getKey(), edge.getKey(), edge.getValue());
+                }
+            }
+        }
+        PropertyGraph rebuilt = new PropertyGraph();
+        rebuilt.replaceGraph(builder.build());
+
+        assertEquals(rebuilt.size(), graph.size());
+        assertEquals(rebuilt.edgeCount(), graph.edgeCount());
+        for (Long id : expected.keySet()) {
+            assertEquals(rebuilt.getNeighborsSorted(id), graph.getNeighborsSorted(id), "fila de " + id);
+        }
+    }
+
+    // Pocos valores distintos para que haya empates en el orden de las filas
+    private static double randomWeight(Random random) {
+        return 0.2 + random.nextInt(16) / 20.0;
+    }
+}
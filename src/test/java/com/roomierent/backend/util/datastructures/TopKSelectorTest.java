@@ -0,0 +1,160 @@
+package com.roomierent.backend.util.datastructures;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TopKSelectorTest {
+
+    @Test
+    void tiesAreBrokenByLowerIndex() {
+        TopKSelector top = new TopKSelector(3);
+        top.offer(0.5, 7);
+        top.offer(0.9, 4);
+        top.offer(0.5, 2);
+        top.offer(0.5, 5);
+        top.offer(0.5, 1);
+
+        assertArrayEquals(new int[]{4, 1, 2}, ranking(top.sortDescending()));
+        assertEquals(0.9, top.scoreAt(0), 0.0);
+        assertEquals(0.5, top.scoreAt(2), 0.0);
+    }
+
+    @Test
+    void kLargerThanCandidatesKeepsEverythingSorted() {
+        TopKSelector top = new TopKSelector(1000);
+        double[] scores = {0.2, 0.8, 0.5, 0.8};
+        for (int i = 0; i < scores.length; i++) {
+            assertTrue(top.offer(scores[i], i));
+        }
+
+        assertEquals(4, top.size());
+        assertFalse(top.isFull());
+        assertArrayEquals(new int[]{1, 3, 2, 0}, ranking(top.sortDescending()));
+    }
+
+    @Test
+    void growsPastInitialCapacityUpToK() {
+        TopKSelector top = new TopKSelector(100);
+        for (int i = 0; i < 500; i++) {
+            top.offer(i, i);
+        }
+
+        assertEquals(100, top.size());
+        top.sortDescending();
+        assertEquals(499, top.indexAt(0));
+        assertEquals(400, top.indexAt(99));
+    }
+
+    @Test
+    void kIsCappedAtCandidateCount() {
+        TopKSelector top = new TopKSelector(Integer.MAX_VALUE, 3);
+        for (int i = 0; i < 5; i++) {
+            top.offer(i, i);
+        }
+
+        assertEquals(3, top.size());
+        assertTrue(top.isFull());
+        assertArrayEquals(new int[]{4, 3, 2}, ranking(top.sortDescending()));
+    }
+
+    @Test
+    void zeroKAcceptsNothing() {
+        TopKSelector top = new TopKSelector(0);
+
+        assertFalse(top.offer(1.0, 0));
+        assertEquals(0, top.size());
+        assertTrue(top.isFull());
+        assertEquals(0, top.sortDescending().size());
+    }
+
+    @Test
+    void negativeKBehavesLikeZero() {
+        TopKSelector top = new TopKSelector(-5);
+
+        assertFalse(top.offer(1.0, 0));
+        assertEquals(0, top.size());
+    }
+
+    @Test
+    void thresholdIsWorstScoreOnceFull() {
+        TopKSelector top = new TopKSelector(2);
+        assertEquals(Double.NEGATIVE_INFINITY, top.threshold(), 0.0);
+
+        top.offer(0.3, 0);
+        top.offer(0.7, 1);
+        top.offer(0.5, 2);
+
+        assertEquals(0.5, top.threshold(), 0.0);
+    }
+
+    @Test
+    void mergingChunkResultsMatchesSinglePass() {
+        Random random = new Random(42);
+        int n = 10_000;
+        int k = 25;
+        double[] scores = new double[n];
+        for (int i = 0; i < n; i++) {
+            // Pocos valores distintos para forzar muchos empates
+            scores[i] = random.nextInt(50) / 10.0;
+        }
+
+        TopKSelector single = new TopKSelector(k);
+        for (int i = 0; i < n; i++) {
+            single.offer(scores[i], i);
+        }
+
+        TopKSelector merged = new TopKSelector(k);
+        for (int from = 0; from < n; from += 997) {
+            int to = Math.min(n, from + 997);
+            TopKSelector chunk = new TopKSelector(k, to - from);
+            for (int i = from; i < to; i++) {
+                chunk.offer(scores[i], i);
+            }
+            merged.merge(chunk);
+        }
+
+        int[] expected = IntStream.range(0, n).boxed()
+                .sorted(Comparator.<Integer>comparingDouble(i -> -scores[i]).thenComparingInt(i -> i))
+                .limit(k)
+                .mapToInt(Integer::intValue)
+                .toArray();
+
+        assertArrayEquals(expected, ranking(single.sortDescending()));
+        assertArrayEquals(expected, ranking(merged.sortDescending()));
+    }
+
+    @Test
+    void offerAfterSortIsRejected() {
+        TopKSelector top = new TopKSelector(2);
+        top.offer(1.0, 0);
+        top.sortDescending();
+
+        assertThrows(IllegalStateException.class, () -> top.offer(2.0, 1));
+    }
+
+    @Test
+    void readingBeforeSortIsRejected() {
+        TopKSelector top = new TopKSelector(2);
+        top.offer(1.0, 0);
+
+        assertThrows(IllegalStateException.class, () -> top.indexAt(0));
+    }
+
+    private static int[] ranking(TopKSelector top) {
+        int[] indexes = new int[top.size()];
+        for (int rank = 0; rank < indexes.length; rank++) {
+            indexes[rank] = top.indexAt(rank);
+        }
+        return indexes;
+    }
+}